@@ -0,0 +1,108 @@
+package com.company.file.service;
+
+import com.company.file.constant.SupportedProtocolConstant;
+import com.company.file.downloader.FileDownloader;
+import com.company.file.downloader.TransferContext;
+import com.company.file.model.DownloadBulkResult;
+import com.company.file.model.DownloadOption;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * cost per uri of the dispatch path, without any network i/o : the downloader does nothing.
+ * - generateOutputPath : output path (sha-256 prefix) of one uri
+ * - downloadBulk       : pre-validation, job creation, hand-off to the workers, output path and outcome of one uri
+ * run with `gradle jmh`.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DispatchBenchmark {
+  private static final int URI_COUNT = 10_000;
+
+  private final Set<String> uriStringSet = new HashSet<>();
+  private final List<URI> uriList = new ArrayList<>();
+  private String downloadLocation;
+  private ScheduledThreadPoolExecutor scheduledExecutorService;
+  private FileDownloaderService fileDownloaderService;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    for (int i = 0; i < URI_COUNT; i++) {
+      String uriString = "https://host-" + (i % 100) + ".example/data/dir-" + (i % 1000) + "/file-" + i + ".bin";
+      uriStringSet.add(uriString);
+      uriList.add(new URI(uriString));
+    }
+    downloadLocation = Files.createTempDirectory("dispatch-benchmark").toString();
+
+    FileDownloader noopFileDownloader = new FileDownloader() {
+      @Override
+      public Set<String> getSupportedSchemes() {
+        return Set.of(SupportedProtocolConstant.HTTPS_PROTOCOL);
+      }
+
+      @Override
+      public void download(URI uri, String outputPath, TransferContext transferContext) {
+      }
+    };
+    scheduledExecutorService = new ScheduledThreadPoolExecutor(Runtime.getRuntime().availableProcessors());
+    fileDownloaderService = new FileDownloaderService(
+        Clock.systemUTC(),
+        Map.of(SupportedProtocolConstant.HTTPS_PROTOCOL, noopFileDownloader),
+        scheduledExecutorService);
+  }
+
+  @TearDown(Level.Iteration)
+  public void purgeFinishedDownloadJobs() {
+    fileDownloaderService.purgeFinishedDownloadJobs(-1);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    scheduledExecutorService.shutdownNow();
+    fileDownloaderService.close();
+    new File(downloadLocation).delete();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(URI_COUNT)
+  public void generateOutputPath(Blackhole blackhole) {
+    for (URI uri : uriList) {
+      blackhole.consume(fileDownloaderService.generateOutputPath(downloadLocation, uri));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(URI_COUNT)
+  public boolean downloadBulk() throws InterruptedException {
+    DownloadBulkResult downloadBulkResult = fileDownloaderService.downloadBulk(uriStringSet, DownloadOption.of(1, downloadLocation));
+    return fileDownloaderService.getDownloadJob(downloadBulkResult.getJobId()).awaitFinished(1, TimeUnit.MINUTES);
+  }
+}
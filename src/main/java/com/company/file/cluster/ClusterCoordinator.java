@@ -0,0 +1,165 @@
+package com.company.file.cluster;
+
+import com.company.file.enums.ShardKeyEnum;
+import com.company.file.model.DownloadBulkResult;
+import com.company.file.model.DownloadOption;
+import com.company.file.model.URIPreValidationResult;
+import com.company.file.model.cluster.ClusterJob;
+import com.company.file.model.cluster.ClusterJobView;
+import com.company.file.model.cluster.ClusterShardSummary;
+import com.company.file.model.cluster.ClusterTask;
+import com.company.file.validator.URIPreValidator;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * submit a job to the cluster and expose its progress across every worker.
+ * the coordinator only writes the job into the store, split into shards by the hash of the shard key of each uri,
+ * the workers lease the shards and download their uri.
+ */
+@Slf4j
+public class ClusterCoordinator {
+  // upper bound of the shards of a job : enough to spread a job over many workers, few enough to keep a poll cheap
+  static final int SHARD_COUNT = 256;
+
+  private final ClusterStore clusterStore;
+  private final Set<String> supportedProtocolSet;
+  private final long workerTimeoutMillis;
+  private final Clock clock;
+
+  /**
+   * @param clusterStore         shared store
+   * @param supportedProtocolSet schemes registered on the workers
+   * @param workerTimeoutMillis  worker without heartbeat for this long is considered dead, same value as the workers
+   * @param clock                clock
+   */
+  public ClusterCoordinator(ClusterStore clusterStore, Set<String> supportedProtocolSet, long workerTimeoutMillis, Clock clock) {
+    this.clusterStore = clusterStore;
+    this.supportedProtocolSet = supportedProtocolSet;
+    this.workerTimeoutMillis = workerTimeoutMillis;
+    this.clock = clock;
+  }
+
+  /**
+   * pre-validate every uri and write the job into the store, nothing is written when one of the uri is invalid.
+   *
+   * @param uriStringSet   set of uri given by user
+   * @param downloadOption option of the job, the size hint of each uri is handed to the worker which claims it
+   * @param shardKey       what is hashed to assign a uri to a worker
+   * @return DownloadBulkResult, with the pre-validation result or the job id
+   */
+  public DownloadBulkResult submit(Set<String> uriStringSet, DownloadOption downloadOption, ShardKeyEnum shardKey) throws IOException {
+    final String jobId = clock.millis() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    URIPreValidationResult uriPreValidationResult = URIPreValidator.initialise(uriStringSet, supportedProtocolSet)
+        .validateAll()
+        .getUriPreValidationResult();
+    log.info("method submit check validation result with identifier : {}, total validUri : {}, shardKey : {}", jobId,
+        uriPreValidationResult.getUriValidSet().size(), shardKey);
+    if (!uriPreValidationResult.isAllUriValid()) {
+      return DownloadBulkResult.preValidationFailed(uriPreValidationResult);
+    }
+
+    Map<String, Long> sizeHintMap = downloadOption.getSizeHintMap() != null ? downloadOption.getSizeHintMap() : Map.of();
+    Map<Integer, List<ClusterTask>> shardTaskListMap = new TreeMap<>();
+    for (URI uri : uriPreValidationResult.getUriValidSet()) {
+      shardTaskListMap.computeIfAbsent(shardIdOf(uri, shardKey), shardId -> new ArrayList<>())
+          .add(new ClusterTask(uri.toString(), sizeHintMap.get(uri.toString())));
+    }
+    clusterStore.createJob(new ClusterJob(
+        jobId,
+        clock.millis(),
+        shardKey,
+        downloadOption.getNumberOfRetry(),
+        downloadOption.getDownloadLocation(),
+        downloadOption.getTransferDeadline().getTotalTimeoutMillis(),
+        downloadOption.getTransferDeadline().getStallTimeoutMillis(),
+        downloadOption.getDownloadOrder(),
+        new ArrayList<>(shardTaskListMap.keySet())), shardTaskListMap);
+    return DownloadBulkResult.preValidationSuccess(jobId);
+  }
+
+  /**
+   * @param jobId job id returned by submit
+   * @return progress of the job across every worker, null when the job is unknown
+   */
+  public ClusterJobView getClusterJobView(String jobId) throws IOException {
+    ClusterJob clusterJob = clusterStore.readJob(jobId);
+    if (clusterJob == null) {
+      return null;
+    }
+    final long now = clock.millis();
+    Set<String> liveWorkerSet = clusterStore.readHeartbeats().entrySet().stream()
+        .filter(heartbeat -> now - heartbeat.getValue() <= workerTimeoutMillis)
+        .map(Map.Entry::getKey)
+        .collect(Collectors.toCollection(TreeSet::new));
+
+    int totalUri = 0;
+    int pendingCount = 0;
+    int leasedCount = 0;
+    int succeededCount = 0;
+    int failedCount = 0;
+    Map<String, Integer> finishedCountByWorker = new TreeMap<>();
+    for (int shardId : clusterJob.getShardIds()) {
+      // a finished shard is read from its summary, only the shards in progress replay their event log
+      ClusterShardSummary clusterShardSummary = clusterStore.readShardSummary(jobId, shardId);
+      if (clusterShardSummary != null) {
+        totalUri += clusterShardSummary.getSucceededCount() + clusterShardSummary.getFailedCount();
+        succeededCount += clusterShardSummary.getSucceededCount();
+        failedCount += clusterShardSummary.getFailedCount();
+        clusterShardSummary.getFinishedCountByWorker().forEach((workerId, count) -> finishedCountByWorker.merge(workerId, count, Integer::sum));
+        continue;
+      }
+      ClusterShardState clusterShardState = new ClusterShardState(clusterStore.readTasks(jobId, shardId),
+          clusterStore.readEvents(jobId, shardId));
+      for (ClusterShardState.UriState uriState : clusterShardState.getUriStates()) {
+        totalUri++;
+        switch (uriState.getStatus()) {
+          case PENDING:
+            pendingCount++;
+            break;
+          case LEASED:
+            leasedCount++;
+            break;
+          case SUCCEEDED:
+            succeededCount++;
+            break;
+          default:
+            failedCount++;
+        }
+        if (uriState.isTerminal() && uriState.getWorkerId() != null) {
+          finishedCountByWorker.merge(uriState.getWorkerId(), 1, Integer::sum);
+        }
+      }
+    }
+    return new ClusterJobView(jobId, totalUri, pendingCount, leasedCount, succeededCount, failedCount, finishedCountByWorker,
+        liveWorkerSet, clusterStore.isJobFinished(jobId));
+  }
+
+  /**
+   * every uri with the same shard key is in the same shard, so with HOST every uri of a host is downloaded by the same worker.
+   */
+  static int shardIdOf(URI uri, ShardKeyEnum shardKey) {
+    return Math.floorMod(shardKeyOf(uri, shardKey).hashCode(), SHARD_COUNT);
+  }
+
+  /**
+   * uri without host (e.g. file:/...) falls back to the whole uri.
+   */
+  static String shardKeyOf(URI uri, ShardKeyEnum shardKey) {
+    if (shardKey == ShardKeyEnum.HOST && uri.getHost() != null) {
+      return uri.getScheme().toLowerCase() + "://" + uri.getHost().toLowerCase();
+    }
+    return uri.toString();
+  }
+}
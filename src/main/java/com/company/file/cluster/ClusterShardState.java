@@ -0,0 +1,73 @@
+package com.company.file.cluster;
+
+import com.company.file.enums.ClusterTaskStatusEnum;
+import com.company.file.model.cluster.ClusterTask;
+import com.company.file.model.cluster.ClusterTaskEvent;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * status of each uri of a shard, rebuilt from its task list and its event log.
+ * once a uri is succeeded or failed, later events of the uri are ignored.
+ */
+class ClusterShardState {
+  private final Map<String, UriState> uriStateMap = new LinkedHashMap<>();
+
+  ClusterShardState(List<ClusterTask> clusterTaskList, List<ClusterTaskEvent> clusterTaskEventList) {
+    clusterTaskList.forEach(clusterTask -> uriStateMap.put(clusterTask.getUri(), new UriState(clusterTask)));
+    for (ClusterTaskEvent clusterTaskEvent : clusterTaskEventList) {
+      UriState uriState = uriStateMap.get(clusterTaskEvent.getUri());
+      if (uriState == null || uriState.isTerminal()) {
+        continue;
+      }
+      uriState.status = clusterTaskEvent.getStatus();
+      uriState.workerId = clusterTaskEvent.getStatus() == ClusterTaskStatusEnum.PENDING ? null : clusterTaskEvent.getWorkerId();
+      if (clusterTaskEvent.getStatus() == ClusterTaskStatusEnum.LEASED) {
+        uriState.claimCount++;
+      }
+    }
+  }
+
+  Iterable<UriState> getUriStates() {
+    return uriStateMap.values();
+  }
+
+  static class UriState {
+    private final ClusterTask clusterTask;
+    private ClusterTaskStatusEnum status = ClusterTaskStatusEnum.PENDING;
+    private String workerId;
+    private int claimCount;
+
+    private UriState(ClusterTask clusterTask) {
+      this.clusterTask = clusterTask;
+    }
+
+    ClusterTask getClusterTask() {
+      return clusterTask;
+    }
+
+    ClusterTaskStatusEnum getStatus() {
+      return status;
+    }
+
+    /**
+     * @return worker which last leased or finished the uri, null when pending
+     */
+    String getWorkerId() {
+      return workerId;
+    }
+
+    /**
+     * @return how many times the uri has been leased, a uri whose workers keep dying is leased again and again
+     */
+    int getClaimCount() {
+      return claimCount;
+    }
+
+    boolean isTerminal() {
+      return status == ClusterTaskStatusEnum.SUCCEEDED || status == ClusterTaskStatusEnum.FAILED;
+    }
+  }
+}
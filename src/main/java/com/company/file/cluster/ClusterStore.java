@@ -0,0 +1,341 @@
+package com.company.file.cluster;
+
+import com.company.file.enums.ClusterTaskStatusEnum;
+import com.company.file.model.cluster.ClusterJob;
+import com.company.file.model.cluster.ClusterShardLease;
+import com.company.file.model.cluster.ClusterShardSummary;
+import com.company.file.model.cluster.ClusterTask;
+import com.company.file.model.cluster.ClusterTaskEvent;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * shared state of the cluster, kept in a directory every coordinator and worker can reach (local disk or network share).
+ * a job is split into shards, a worker only reads and writes the shards it holds, and only when something has changed :
+ * the cost of a poll does not grow with the size of the job.
+ * layout :
+ * - workers/{workerId}                      : heartbeat, last time (epoch millis) the worker was alive
+ * - jobs/{jobId}/job.json                   : job definition, see {@link ClusterJob}, written last so a job is always complete
+ * - jobs/{jobId}/shards/{shardId}/tasks.json : uri of the shard, written once
+ * - jobs/{jobId}/shards/{shardId}/lease.json : lease of the shard, see {@link ClusterShardLease}
+ * - jobs/{jobId}/shards/{shardId}/events.log : one line per uri started / finished / handed back, only appended by the lease holder
+ * - jobs/{jobId}/shards/{shardId}/lock       : taken (file lock) while the lease is checked and the event log appended
+ * - jobs/{jobId}/shards/{shardId}/finished  : summary written once every uri of the shard is succeeded or failed
+ * - jobs/{jobId}/finished                   : marker written once every shard of the job is finished
+ * every file but the event log is written to a temporary file and moved in place, so a reader never sees a partial file.
+ */
+public class ClusterStore {
+  private static final String WORKERS_DIRECTORY = "workers";
+  private static final String JOBS_DIRECTORY = "jobs";
+  private static final String SHARDS_DIRECTORY = "shards";
+  private static final String JOB_FILE = "job.json";
+  private static final String TASKS_FILE = "tasks.json";
+  private static final String LEASE_FILE = "lease.json";
+  private static final String EVENTS_FILE = "events.log";
+  private static final String LOCK_FILE = "lock";
+  private static final String FINISHED_FILE = "finished";
+  private static final char EVENT_SEPARATOR = '\t';
+  // file lock is held per jvm, several workers of the same jvm are serialised by the stripe of the lock file first.
+  // a fixed number of stripes, so the jobs coming and going do not leave one lock object per shard behind
+  private static final int JVM_LOCK_STRIPE_COUNT = 64;
+  private static final Object[] JVM_LOCK_STRIPES = IntStream.range(0, JVM_LOCK_STRIPE_COUNT).mapToObj(i -> new Object()).toArray();
+
+  private final Path workersPath;
+  private final Path jobsPath;
+  private final ObjectMapper objectMapper;
+
+  public ClusterStore(Path rootPath, ObjectMapper objectMapper) throws IOException {
+    this.workersPath = rootPath.resolve(WORKERS_DIRECTORY);
+    this.jobsPath = rootPath.resolve(JOBS_DIRECTORY);
+    this.objectMapper = objectMapper;
+    Files.createDirectories(workersPath);
+    Files.createDirectories(jobsPath);
+  }
+
+  /**
+   * @param clusterJob       job definition
+   * @param shardTaskListMap uri of each shard listed in the job definition
+   */
+  public void createJob(ClusterJob clusterJob, Map<Integer, List<ClusterTask>> shardTaskListMap) throws IOException {
+    Path jobPath = jobsPath.resolve(clusterJob.getJobId());
+    for (Map.Entry<Integer, List<ClusterTask>> shardTaskList : shardTaskListMap.entrySet()) {
+      Path shardPath = shardPath(clusterJob.getJobId(), shardTaskList.getKey());
+      Files.createDirectories(shardPath);
+      writeAtomically(shardPath.resolve(TASKS_FILE), objectMapper.writeValueAsBytes(shardTaskList.getValue()));
+    }
+    writeAtomically(jobPath.resolve(JOB_FILE), objectMapper.writeValueAsBytes(clusterJob));
+  }
+
+  /**
+   * @param jobId job id
+   * @return job definition, null when the job is unknown
+   */
+  public ClusterJob readJob(String jobId) throws IOException {
+    Path jobFilePath = jobsPath.resolve(jobId).resolve(JOB_FILE);
+    if (!Files.exists(jobFilePath)) {
+      return null;
+    }
+    return objectMapper.readValue(jobFilePath.toFile(), ClusterJob.class);
+  }
+
+  public List<ClusterTask> readTasks(String jobId, int shardId) throws IOException {
+    return objectMapper.readValue(shardPath(jobId, shardId).resolve(TASKS_FILE).toFile(), new TypeReference<>() {
+    });
+  }
+
+  /**
+   * @return events of the shard in the order they were appended, a line being appended right now is ignored
+   */
+  public List<ClusterTaskEvent> readEvents(String jobId, int shardId) throws IOException {
+    List<ClusterTaskEvent> clusterTaskEventList = new ArrayList<>();
+    String content;
+    try {
+      content = Files.readString(shardPath(jobId, shardId).resolve(EVENTS_FILE));
+    } catch (NoSuchFileException e) {
+      return clusterTaskEventList;
+    }
+    int lineStart = 0;
+    int lineEnd;
+    while ((lineEnd = content.indexOf('\n', lineStart)) >= 0) {
+      ClusterTaskEvent clusterTaskEvent = parseEvent(content.substring(lineStart, lineEnd));
+      if (clusterTaskEvent != null) {
+        clusterTaskEventList.add(clusterTaskEvent);
+      }
+      lineStart = lineEnd + 1;
+    }
+    return clusterTaskEventList;
+  }
+
+  /**
+   * @return lease of the shard as last written, null when nobody holds it
+   */
+  public ClusterShardLease readLease(String jobId, int shardId) throws IOException {
+    byte[] content;
+    try {
+      content = Files.readAllBytes(shardPath(jobId, shardId).resolve(LEASE_FILE));
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+    return objectMapper.readValue(content, ClusterShardLease.class);
+  }
+
+  public boolean isShardFinished(String jobId, int shardId) {
+    return Files.exists(shardPath(jobId, shardId).resolve(FINISHED_FILE));
+  }
+
+  /**
+   * @return summary of the shard, null when the shard is not finished yet
+   */
+  public ClusterShardSummary readShardSummary(String jobId, int shardId) throws IOException {
+    Path finishedPath = shardPath(jobId, shardId).resolve(FINISHED_FILE);
+    if (!Files.exists(finishedPath)) {
+      return null;
+    }
+    return objectMapper.readValue(finishedPath.toFile(), ClusterShardSummary.class);
+  }
+
+  /**
+   * take the lease of a shard which is not finished, while holding the shard lock.
+   *
+   * @param jobId          job id
+   * @param shardId        shard id
+   * @param workerId       worker taking the lease
+   * @param leaseExpiresAt expiry of the new lease
+   * @param acquirable     whether the current lease (null when there is none) can be taken over
+   * @return true when the lease has been taken
+   */
+  public boolean acquireShard(String jobId, int shardId, String workerId, long leaseExpiresAt, Predicate<ClusterShardLease> acquirable)
+      throws IOException {
+    Path shardPath = shardPath(jobId, shardId);
+    return withShardLock(shardPath, () -> {
+      if (Files.exists(shardPath.resolve(FINISHED_FILE)) || !acquirable.test(readLease(jobId, shardId))) {
+        return false;
+      }
+      writeAtomically(shardPath.resolve(LEASE_FILE), objectMapper.writeValueAsBytes(new ClusterShardLease(workerId, leaseExpiresAt)));
+      return true;
+    });
+  }
+
+  /**
+   * append events to the shard and renew its lease, only when the lease is still held by the worker.
+   *
+   * @param jobId                job id
+   * @param shardId              shard id
+   * @param workerId             worker holding the lease
+   * @param clusterTaskEventList events to append, can be empty to only renew the lease
+   * @param leaseExpiresAt       expiry of the renewed lease
+   * @return false when the lease has been taken over by another worker meanwhile, nothing is written then
+   */
+  public boolean appendEvents(String jobId, int shardId, String workerId, List<ClusterTaskEvent> clusterTaskEventList, long leaseExpiresAt)
+      throws IOException {
+    Path shardPath = shardPath(jobId, shardId);
+    return withShardLock(shardPath, () -> {
+      if (!isHeldBy(readLease(jobId, shardId), workerId)) {
+        return false;
+      }
+      if (!clusterTaskEventList.isEmpty()) {
+        StringBuilder sb = new StringBuilder();
+        clusterTaskEventList.forEach(clusterTaskEvent -> sb.append(clusterTaskEvent.getStatus()).append(EVENT_SEPARATOR)
+            .append(clusterTaskEvent.getWorkerId()).append(EVENT_SEPARATOR).append(clusterTaskEvent.getUri()).append('\n'));
+        Files.write(shardPath.resolve(EVENTS_FILE), sb.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+      }
+      writeAtomically(shardPath.resolve(LEASE_FILE), objectMapper.writeValueAsBytes(new ClusterShardLease(workerId, leaseExpiresAt)));
+      return true;
+    });
+  }
+
+  /**
+   * give the lease of a shard up, the shard is marked as finished when a summary is given.
+   *
+   * @param clusterShardSummary summary of the shard when every uri is finished, null when the shard is handed over unfinished
+   * @return false when the lease had already been taken over by another worker
+   */
+  public boolean releaseShard(String jobId, int shardId, String workerId, ClusterShardSummary clusterShardSummary) throws IOException {
+    Path shardPath = shardPath(jobId, shardId);
+    return withShardLock(shardPath, () -> {
+      if (!isHeldBy(readLease(jobId, shardId), workerId)) {
+        return false;
+      }
+      if (clusterShardSummary != null) {
+        writeAtomically(shardPath.resolve(FINISHED_FILE), objectMapper.writeValueAsBytes(clusterShardSummary));
+      }
+      Files.deleteIfExists(shardPath.resolve(LEASE_FILE));
+      return true;
+    });
+  }
+
+  /**
+   * write the job finished marker when every shard of the job is finished.
+   *
+   * @return true when the job is finished
+   */
+  public boolean finishJobIfComplete(ClusterJob clusterJob) throws IOException {
+    for (int shardId : clusterJob.getShardIds()) {
+      if (!Files.exists(shardPath(clusterJob.getJobId(), shardId).resolve(FINISHED_FILE))) {
+        return false;
+      }
+    }
+    writeAtomically(jobsPath.resolve(clusterJob.getJobId()).resolve(FINISHED_FILE), new byte[0]);
+    return true;
+  }
+
+  public boolean isJobFinished(String jobId) {
+    return Files.exists(jobsPath.resolve(jobId).resolve(FINISHED_FILE));
+  }
+
+  /**
+   * @return id of the jobs which still have uri to be downloaded
+   */
+  public List<String> listActiveJobIds() throws IOException {
+    List<String> jobIdList = new ArrayList<>();
+    try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(jobsPath, Files::isDirectory)) {
+      for (Path jobPath : directoryStream) {
+        if (Files.exists(jobPath.resolve(JOB_FILE)) && !Files.exists(jobPath.resolve(FINISHED_FILE))) {
+          jobIdList.add(jobPath.getFileName().toString());
+        }
+      }
+    }
+    return jobIdList;
+  }
+
+  public void heartbeat(String workerId, long now) throws IOException {
+    writeAtomically(workersPath.resolve(workerId), String.valueOf(now).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @return last heartbeat (epoch millis) per worker id
+   */
+  public Map<String, Long> readHeartbeats() throws IOException {
+    Map<String, Long> heartbeatMap = new HashMap<>();
+    try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(workersPath, path -> !isTemporary(path))) {
+      for (Path workerPath : directoryStream) {
+        try {
+          heartbeatMap.put(workerPath.getFileName().toString(), Long.parseLong(Files.readString(workerPath).trim()));
+        } catch (IOException | NumberFormatException ignored) {
+          // removed or being replaced meanwhile, the next read will see it
+        }
+      }
+    }
+    return heartbeatMap;
+  }
+
+  /**
+   * remove the heartbeat of a worker which stops gracefully, its shards are reassigned right away.
+   */
+  public void removeWorker(String workerId) throws IOException {
+    Files.deleteIfExists(workersPath.resolve(workerId));
+  }
+
+  private Path shardPath(String jobId, int shardId) {
+    return jobsPath.resolve(jobId).resolve(SHARDS_DIRECTORY).resolve(String.valueOf(shardId));
+  }
+
+  private <T> T withShardLock(Path shardPath, LockedOperation<T> lockedOperation) throws IOException {
+    Path lockPath = shardPath.resolve(LOCK_FILE);
+    synchronized (JVM_LOCK_STRIPES[Math.floorMod(lockPath.toAbsolutePath().hashCode(), JVM_LOCK_STRIPE_COUNT)]) {
+      try (FileChannel lockChannel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+           FileLock ignored = lockChannel.lock()) {
+        return lockedOperation.run();
+      }
+    }
+  }
+
+  private void writeAtomically(Path path, byte[] content) throws IOException {
+    Path temporaryPath = path.resolveSibling(path.getFileName() + "." + UUID.randomUUID() + ".tmp");
+    Files.write(temporaryPath, content);
+    try {
+      Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      Files.deleteIfExists(temporaryPath);
+      throw e;
+    }
+  }
+
+  private static boolean isHeldBy(ClusterShardLease clusterShardLease, String workerId) {
+    return clusterShardLease != null && workerId.equals(clusterShardLease.getWorkerId());
+  }
+
+  /**
+   * @return the event, null for a malformed line (e.g. a partial line left by a worker which died while appending)
+   */
+  private static ClusterTaskEvent parseEvent(String line) {
+    final int statusEnd = line.indexOf(EVENT_SEPARATOR);
+    final int workerIdEnd = statusEnd < 0 ? -1 : line.indexOf(EVENT_SEPARATOR, statusEnd + 1);
+    if (workerIdEnd < 0) {
+      return null;
+    }
+    try {
+      return new ClusterTaskEvent(ClusterTaskStatusEnum.valueOf(line.substring(0, statusEnd)), line.substring(statusEnd + 1, workerIdEnd),
+          line.substring(workerIdEnd + 1));
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private static boolean isTemporary(Path path) {
+    return path.getFileName().toString().endsWith(".tmp");
+  }
+
+  private interface LockedOperation<T> {
+    T run() throws IOException;
+  }
+}
@@ -0,0 +1,456 @@
+package com.company.file.cluster;
+
+import com.company.file.enums.ClusterTaskStatusEnum;
+import com.company.file.enums.TransferOutcomeEnum;
+import com.company.file.model.DownloadBulkResult;
+import com.company.file.model.cluster.ClusterJob;
+import com.company.file.model.cluster.ClusterShardLease;
+import com.company.file.model.cluster.ClusterShardSummary;
+import com.company.file.model.cluster.ClusterTask;
+import com.company.file.model.cluster.ClusterTaskEvent;
+import com.company.file.service.FileDownloaderService;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * worker of a cluster : holds the shards it owns on the consistent hash ring and downloads their uri with its own FileDownloaderService.
+ * every poll it :
+ * 1. writes its heartbeat, worker without heartbeat for workerTimeoutMillis is considered dead
+ * 2. rebuilds the ring when the live workers have changed
+ * 3. takes the lease of the shards it owns which are free, or leased by a dead worker, or whose lease has expired,
+ *    and rebuilds their state from the shard event log
+ * 4. for each held shard : appends the outcome of the uri finished since the last poll and the uri it starts now
+ *    (renewing the lease), then submits the started uri to the FileDownloaderService.
+ *    a shard whose uri are all finished is marked as finished, a shard the worker does not own anymore is handed over once idle.
+ * a uri leased more than MAX_CLAIM_COUNT times (its workers keep dying) is marked as failed.
+ * an outcome is only dropped once it has been appended, when the store can not be written it is appended on the next poll.
+ */
+@Slf4j
+public class ClusterWorker {
+  public static final long DEFAULT_POLL_INTERVAL_MILLIS = 1000;
+  public static final long DEFAULT_WORKER_TIMEOUT_MILLIS = 10_000;
+  public static final long DEFAULT_LEASE_MILLIS = 30_000;
+  private static final int MAX_CLAIM_COUNT = 3;
+
+  private final String workerId;
+  private final ClusterStore clusterStore;
+  private final FileDownloaderService fileDownloaderService;
+  private final int maxInFlight;
+  private final long pollIntervalMillis;
+  private final long workerTimeoutMillis;
+  private final long leaseMillis;
+  private final Clock clock;
+  private final ScheduledExecutorService pollExecutorService;
+  // local jobs created by downloadBulk, removed from the FileDownloaderService once finished
+  private final Queue<String> localJobIdQueue = new ConcurrentLinkedQueue<>();
+  // everything below is only used by the poll thread
+  private final Map<String, ActiveJob> activeJobRegistry = new HashMap<>();
+  private final Map<String, HeldShard> heldShardRegistry = new LinkedHashMap<>();
+  private Set<String> ringWorkerSet = Set.of();
+  private ConsistentHashRing consistentHashRing = new ConsistentHashRing(Set.of());
+  private long ringVersion;
+
+  /**
+   * @param workerId              unique and stable id of the worker
+   * @param clusterStore          shared store
+   * @param fileDownloaderService service doing the download
+   * @param maxInFlight           maximum uri started and not finished yet, so other workers can take over the rest
+   * @param pollIntervalMillis    interval between two polls
+   * @param workerTimeoutMillis   worker without heartbeat for this long is considered dead
+   * @param leaseMillis           lease of a held shard, renewed while the worker holds it
+   * @param clock                 clock, must be in sync across the hosts
+   */
+  public ClusterWorker(String workerId, ClusterStore clusterStore, FileDownloaderService fileDownloaderService, int maxInFlight,
+                       long pollIntervalMillis, long workerTimeoutMillis, long leaseMillis, Clock clock) {
+    this.workerId = workerId;
+    this.clusterStore = clusterStore;
+    this.fileDownloaderService = fileDownloaderService;
+    this.maxInFlight = maxInFlight;
+    this.pollIntervalMillis = pollIntervalMillis;
+    this.workerTimeoutMillis = workerTimeoutMillis;
+    this.leaseMillis = leaseMillis;
+    this.clock = clock;
+    this.pollExecutorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      // not a daemon : it keeps a --worker process alive until it is stopped
+      return new Thread(runnable, "cluster-worker-" + workerId);
+    });
+  }
+
+  public void start() {
+    pollExecutorService.scheduleWithFixedDelay(this::poll, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    log.info("method start cluster worker started with workerId : {}, maxInFlight : {}", workerId, maxInFlight);
+  }
+
+  /**
+   * stop polling, hand the held shards over and remove the heartbeat, so the other workers take over right away.
+   */
+  public void stop() {
+    try {
+      // the hand over runs on the poll thread, after the poll in progress, the held shards are only ever touched by that thread.
+      // shutdown drops the next polls but still runs the hand over already queued
+      Future<?> handOverFuture = pollExecutorService.submit(this::handOverShards);
+      pollExecutorService.shutdown();
+      handOverFuture.get();
+    } catch (RejectedExecutionException e) {
+      log.info("method stop cluster worker already stopped with workerId : {}", workerId);
+      return;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      log.warn("method stop failed to hand over shards for workerId : {}, error : {}", workerId, e.getCause().toString());
+    }
+    try {
+      clusterStore.removeWorker(workerId);
+    } catch (Exception e) {
+      log.warn("method stop failed to remove heartbeat for workerId : {}, error : {}", workerId, e.toString());
+    }
+    log.info("method stop cluster worker stopped with workerId : {}", workerId);
+  }
+
+  private void handOverShards() {
+    for (HeldShard heldShard : heldShardRegistry.values()) {
+      try {
+        heldShard.drainFinishedTasks();
+        if (clusterStore.appendEvents(heldShard.jobId(), heldShard.shardId, workerId, heldShard.unflushedEventList, clock.millis())) {
+          clusterStore.releaseShard(heldShard.jobId(), heldShard.shardId, workerId, null);
+        }
+      } catch (Exception e) {
+        log.warn("method handOverShards failed to hand over shard for identifier : {}, shardId : {}, error : {}", heldShard.jobId(),
+            heldShard.shardId, e.toString());
+      }
+    }
+    heldShardRegistry.clear();
+  }
+
+  void poll() {
+    final long now = clock.millis();
+    try {
+      clusterStore.heartbeat(workerId, now);
+      Set<String> liveWorkerSet = clusterStore.readHeartbeats().entrySet().stream()
+          .filter(heartbeat -> now - heartbeat.getValue() <= workerTimeoutMillis)
+          .map(Map.Entry::getKey)
+          .collect(Collectors.toSet());
+      liveWorkerSet.add(workerId);
+      if (!liveWorkerSet.equals(ringWorkerSet)) {
+        ringWorkerSet = liveWorkerSet;
+        consistentHashRing = new ConsistentHashRing(liveWorkerSet);
+        ringVersion++;
+      }
+      acquireShards(liveWorkerSet, now);
+    } catch (Exception e) {
+      // the shards already held are still polled, their outcomes must not wait for the store listing to recover
+      log.error("method poll error for workerId : {}", workerId, e);
+    }
+
+    int capacity = maxInFlight - heldShardRegistry.values().stream().mapToInt(heldShard -> heldShard.inFlightTaskMap.size()).sum();
+    Iterator<HeldShard> heldShardIterator = heldShardRegistry.values().iterator();
+    while (heldShardIterator.hasNext()) {
+      HeldShard heldShard = heldShardIterator.next();
+      try {
+        capacity -= pollHeldShard(heldShard, Math.max(0, capacity), now);
+        if (heldShard.released) {
+          heldShardIterator.remove();
+        }
+      } catch (Exception e) {
+        log.error("method poll error for identifier : {}, shardId : {}, workerId : {}", heldShard.jobId(), heldShard.shardId, workerId, e);
+      }
+    }
+    localJobIdQueue.removeIf(fileDownloaderService::removeFinishedDownloadJob);
+  }
+
+  /**
+   * @return local jobs not purged yet from the FileDownloaderService
+   */
+  int getLocalJobCount() {
+    return localJobIdQueue.size();
+  }
+
+  private void acquireShards(Set<String> liveWorkerSet, long now) throws IOException {
+    Set<String> activeJobIdSet = new HashSet<>(clusterStore.listActiveJobIds());
+    activeJobRegistry.keySet().retainAll(activeJobIdSet);
+    for (String jobId : activeJobIdSet) {
+      try {
+        acquireShardsOfJob(jobId, liveWorkerSet, now);
+      } catch (Exception e) {
+        log.error("method acquireShardsOfJob error for identifier : {}, workerId : {}", jobId, workerId, e);
+      }
+    }
+  }
+
+  private void acquireShardsOfJob(String jobId, Set<String> liveWorkerSet, long now) throws IOException {
+    ActiveJob activeJob = activeJobRegistry.get(jobId);
+    if (activeJob == null) {
+      ClusterJob clusterJob = clusterStore.readJob(jobId);
+      if (clusterJob == null) {
+        return;
+      }
+      activeJob = new ActiveJob(clusterJob);
+      activeJobRegistry.put(jobId, activeJob);
+    }
+    if (activeJob.ringVersion != ringVersion) {
+      activeJob.ownedShardIdList = activeJob.clusterJob.getShardIds().stream()
+          .filter(shardId -> workerId.equals(consistentHashRing.ownerOf(shardOwnerKey(jobId, shardId))))
+          .collect(Collectors.toList());
+      activeJob.ringVersion = ringVersion;
+      activeJob.completionChecked = false;
+    }
+
+    boolean allOwnedShardFinished = true;
+    for (int shardId : activeJob.ownedShardIdList) {
+      if (activeJob.finishedShardIdSet.contains(shardId) || heldShardRegistry.containsKey(shardOwnerKey(jobId, shardId))) {
+        allOwnedShardFinished &= activeJob.finishedShardIdSet.contains(shardId);
+        continue;
+      }
+      if (clusterStore.isShardFinished(jobId, shardId)) {
+        activeJob.finishedShardIdSet.add(shardId);
+        continue;
+      }
+      allOwnedShardFinished = false;
+      if (isAcquirable(clusterStore.readLease(jobId, shardId), liveWorkerSet, now)
+          && clusterStore.acquireShard(jobId, shardId, workerId, now + leaseMillis, lease -> isAcquirable(lease, liveWorkerSet, now))) {
+        heldShardRegistry.put(shardOwnerKey(jobId, shardId), loadShard(activeJob.clusterJob, shardId, now + leaseMillis));
+      }
+    }
+    // the worker which finished the last shard may have died before marking the job as finished
+    if (allOwnedShardFinished && !activeJob.completionChecked) {
+      activeJob.completionChecked = true;
+      clusterStore.finishJobIfComplete(activeJob.clusterJob);
+    }
+  }
+
+  private boolean isAcquirable(ClusterShardLease clusterShardLease, Set<String> liveWorkerSet, long now) {
+    return clusterShardLease == null
+        || workerId.equals(clusterShardLease.getWorkerId())
+        || clusterShardLease.getLeaseExpiresAt() < now
+        || !liveWorkerSet.contains(clusterShardLease.getWorkerId());
+  }
+
+  private HeldShard loadShard(ClusterJob clusterJob, int shardId, long leaseExpiresAt) throws IOException {
+    HeldShard heldShard = new HeldShard(clusterJob, shardId, leaseExpiresAt);
+    ClusterShardState clusterShardState = new ClusterShardState(clusterStore.readTasks(clusterJob.getJobId(), shardId),
+        clusterStore.readEvents(clusterJob.getJobId(), shardId));
+    for (ClusterShardState.UriState uriState : clusterShardState.getUriStates()) {
+      if (uriState.isTerminal()) {
+        heldShard.countFinished(uriState.getStatus(), uriState.getWorkerId());
+      } else if (uriState.getClaimCount() >= MAX_CLAIM_COUNT) {
+        log.warn("method loadShard uri claimed too many times, mark as failed for identifier : {}, uri : {}", clusterJob.getJobId(),
+            uriState.getClusterTask().getUri());
+        heldShard.unflushedEventList.add(new ClusterTaskEvent(ClusterTaskStatusEnum.FAILED, workerId, uriState.getClusterTask().getUri()));
+        heldShard.countFinished(ClusterTaskStatusEnum.FAILED, workerId);
+      } else {
+        heldShard.pendingTaskDeque.add(uriState.getClusterTask());
+        heldShard.remainingCount++;
+      }
+    }
+    log.info("method loadShard shard acquired with identifier : {}, shardId : {}, workerId : {}, remaining uri : {}",
+        clusterJob.getJobId(), shardId, workerId, heldShard.remainingCount);
+    return heldShard;
+  }
+
+  /**
+   * @return count of uri started
+   */
+  private int pollHeldShard(HeldShard heldShard, int capacity, long now) throws IOException {
+    heldShard.drainFinishedTasks();
+    final boolean owned = workerId.equals(consistentHashRing.ownerOf(shardOwnerKey(heldShard.jobId(), heldShard.shardId)));
+    List<ClusterTask> startedTaskList = new ArrayList<>();
+    while (owned && startedTaskList.size() < capacity && !heldShard.pendingTaskDeque.isEmpty()) {
+      startedTaskList.add(heldShard.pendingTaskDeque.poll());
+    }
+
+    if (!heldShard.unflushedEventList.isEmpty() || !startedTaskList.isEmpty() || now >= heldShard.leaseExpiresAt - leaseMillis / 2) {
+      List<ClusterTaskEvent> clusterTaskEventList = new ArrayList<>(heldShard.unflushedEventList);
+      startedTaskList.forEach(clusterTask -> clusterTaskEventList.add(
+          new ClusterTaskEvent(ClusterTaskStatusEnum.LEASED, workerId, clusterTask.getUri())));
+      final boolean leaseHeld;
+      try {
+        leaseHeld = clusterStore.appendEvents(heldShard.jobId(), heldShard.shardId, workerId, clusterTaskEventList, now + leaseMillis);
+      } catch (IOException e) {
+        // nothing has been appended, the outcomes are kept and the uri started again on the next poll
+        for (int i = startedTaskList.size() - 1; i >= 0; i--) {
+          heldShard.pendingTaskDeque.addFirst(startedTaskList.get(i));
+        }
+        throw e;
+      }
+      if (!leaseHeld) {
+        log.warn("method pollHeldShard lease lost, shard dropped for identifier : {}, shardId : {}, workerId : {}", heldShard.jobId(),
+            heldShard.shardId, workerId);
+        heldShard.localJobIdList.forEach(fileDownloaderService::cancelDownloadJob);
+        heldShard.released = true;
+        return 0;
+      }
+      heldShard.unflushedEventList.clear();
+      heldShard.leaseExpiresAt = now + leaseMillis;
+    }
+    if (!startedTaskList.isEmpty()) {
+      submit(heldShard, startedTaskList);
+    }
+
+    if (heldShard.remainingCount == 0) {
+      clusterStore.releaseShard(heldShard.jobId(), heldShard.shardId, workerId, new ClusterShardSummary(heldShard.succeededCount,
+          heldShard.failedCount, heldShard.finishedCountByWorker));
+      heldShard.released = true;
+      log.info("method pollHeldShard shard finished with identifier : {}, shardId : {}, workerId : {}", heldShard.jobId(),
+          heldShard.shardId, workerId);
+      clusterStore.finishJobIfComplete(heldShard.clusterJob);
+    } else if (!owned && heldShard.inFlightTaskMap.isEmpty() && heldShard.finishedTaskQueue.isEmpty()) {
+      // another worker owns the shard since the ring has changed, it is handed over once nothing is left in flight
+      clusterStore.releaseShard(heldShard.jobId(), heldShard.shardId, workerId, null);
+      heldShard.released = true;
+      log.info("method pollHeldShard shard handed over with identifier : {}, shardId : {}, workerId : {}", heldShard.jobId(),
+          heldShard.shardId, workerId);
+    }
+    return startedTaskList.size();
+  }
+
+  private void submit(HeldShard heldShard, List<ClusterTask> startedTaskList) {
+    final String jobId = heldShard.jobId();
+    Set<String> startedUriSet = new HashSet<>();
+    Map<String, Long> sizeHintMap = new HashMap<>();
+    for (ClusterTask clusterTask : startedTaskList) {
+      startedUriSet.add(clusterTask.getUri());
+      heldShard.inFlightTaskMap.put(clusterTask.getUri(), clusterTask);
+      if (clusterTask.getSize() != null) {
+        sizeHintMap.put(clusterTask.getUri(), clusterTask.getSize());
+      }
+    }
+    log.info("method submit started with identifier : {}, shardId : {}, workerId : {}, total uri : {}", jobId, heldShard.shardId,
+        workerId, startedUriSet.size());
+
+    DownloadBulkResult downloadBulkResult = fileDownloaderService.downloadBulk(startedUriSet,
+        heldShard.clusterJob.toDownloadOption(sizeHintMap), (uri, transferOutcome) -> heldShard.finish(uri.toString(), transferOutcome));
+    if (downloadBulkResult.getJobId() == null) {
+      // the uri were validated by the coordinator, only a protocol missing on this worker can get here
+      log.warn("method submit pre-validation failed for identifier : {}, workerId : {}, uriPreValidationResult : {}", jobId, workerId,
+          downloadBulkResult.getUriPreValidationResult());
+      startedUriSet.forEach(uri -> heldShard.finish(uri, TransferOutcomeEnum.FAILED));
+      return;
+    }
+    heldShard.localJobIdList.add(downloadBulkResult.getJobId());
+    localJobIdQueue.add(downloadBulkResult.getJobId());
+  }
+
+  /**
+   * key of a shard on the ring, every shard of a job is placed on the ring independently.
+   */
+  static String shardOwnerKey(String jobId, int shardId) {
+    return jobId + "/" + shardId;
+  }
+
+  private static class ActiveJob {
+    private final ClusterJob clusterJob;
+    private final Set<Integer> finishedShardIdSet = new HashSet<>();
+    private List<Integer> ownedShardIdList = List.of();
+    private long ringVersion = -1;
+    private boolean completionChecked;
+
+    private ActiveJob(ClusterJob clusterJob) {
+      this.clusterJob = clusterJob;
+    }
+  }
+
+  private class HeldShard {
+    private final ClusterJob clusterJob;
+    private final int shardId;
+    private final Deque<ClusterTask> pendingTaskDeque = new ArrayDeque<>();
+    // written by the FileDownloaderService threads
+    private final Map<String, ClusterTask> inFlightTaskMap = new ConcurrentHashMap<>();
+    private final Queue<FinishedTask> finishedTaskQueue = new ConcurrentLinkedQueue<>();
+    // events recorded but not appended to the store yet
+    private final List<ClusterTaskEvent> unflushedEventList = new ArrayList<>();
+    private final Map<String, Integer> finishedCountByWorker = new TreeMap<>();
+    private final List<String> localJobIdList = new ArrayList<>();
+    private int remainingCount;
+    private int succeededCount;
+    private int failedCount;
+    private long leaseExpiresAt;
+    private boolean released;
+
+    private HeldShard(ClusterJob clusterJob, int shardId, long leaseExpiresAt) {
+      this.clusterJob = clusterJob;
+      this.shardId = shardId;
+      this.leaseExpiresAt = leaseExpiresAt;
+    }
+
+    private String jobId() {
+      return clusterJob.getJobId();
+    }
+
+    /**
+     * called by the FileDownloaderService, queued before leaving the in-flight map so the shard is never seen idle with an outcome left.
+     */
+    private void finish(String uri, TransferOutcomeEnum transferOutcome) {
+      ClusterTask clusterTask = inFlightTaskMap.get(uri);
+      if (clusterTask == null) {
+        return;
+      }
+      finishedTaskQueue.add(new FinishedTask(clusterTask, transferOutcome));
+      inFlightTaskMap.remove(uri);
+    }
+
+    /**
+     * uri skipped locally (its local job has been cancelled) is handed back and started again.
+     */
+    private void drainFinishedTasks() {
+      FinishedTask finishedTask;
+      while ((finishedTask = finishedTaskQueue.poll()) != null) {
+        final String uri = finishedTask.clusterTask.getUri();
+        if (finishedTask.transferOutcome == TransferOutcomeEnum.SKIPPED) {
+          unflushedEventList.add(new ClusterTaskEvent(ClusterTaskStatusEnum.PENDING, workerId, uri));
+          pendingTaskDeque.add(finishedTask.clusterTask);
+          continue;
+        }
+        ClusterTaskStatusEnum status = finishedTask.transferOutcome == TransferOutcomeEnum.SUCCEEDED
+            ? ClusterTaskStatusEnum.SUCCEEDED
+            : ClusterTaskStatusEnum.FAILED;
+        unflushedEventList.add(new ClusterTaskEvent(status, workerId, uri));
+        countFinished(status, workerId);
+        remainingCount--;
+      }
+    }
+
+    private void countFinished(ClusterTaskStatusEnum status, String finishedBy) {
+      if (status == ClusterTaskStatusEnum.SUCCEEDED) {
+        succeededCount++;
+      } else {
+        failedCount++;
+      }
+      if (finishedBy != null) {
+        finishedCountByWorker.merge(finishedBy, 1, Integer::sum);
+      }
+    }
+  }
+
+  private static class FinishedTask {
+    private final ClusterTask clusterTask;
+    private final TransferOutcomeEnum transferOutcome;
+
+    private FinishedTask(ClusterTask clusterTask, TransferOutcomeEnum transferOutcome) {
+      this.clusterTask = clusterTask;
+      this.transferOutcome = transferOutcome;
+    }
+  }
+}
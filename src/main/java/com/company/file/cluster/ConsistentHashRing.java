@@ -0,0 +1,48 @@
+package com.company.file.cluster;
+
+import com.company.file.util.DigestUtil;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * consistent hash ring of the live workers.
+ * each worker is placed on the ring several times (virtual nodes) so the keys are spread evenly,
+ * and when a worker joins or leaves only the keys of its neighbours move.
+ */
+public class ConsistentHashRing {
+  private static final int VIRTUAL_NODE_COUNT = 64;
+
+  private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+  public ConsistentHashRing(Collection<String> workerIds) {
+    for (String workerId : workerIds) {
+      for (int i = 0; i < VIRTUAL_NODE_COUNT; i++) {
+        ring.put(hash(workerId + "#" + i), workerId);
+      }
+    }
+  }
+
+  /**
+   * @param key shard key
+   * @return worker owning the key, null when the ring is empty
+   */
+  public String ownerOf(String key) {
+    if (ring.isEmpty()) {
+      return null;
+    }
+    Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+    return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+  }
+
+  private static long hash(String value) {
+    byte[] digest = DigestUtil.sha256(value);
+    long hash = 0;
+    for (int i = 0; i < Long.BYTES; i++) {
+      hash = (hash << 8) | (digest[i] & 0xff);
+    }
+    return hash;
+  }
+}
@@ -3,19 +3,16 @@ package com.company.file.constant;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 
-import java.util.Set;
-
+/**
+ * scheme of the built-in protocols.
+ * the supported protocols are the one declared by the FileDownloader discovered through ServiceLoader,
+ * see {@link com.company.file.downloader.FileDownloaderRegistry}.
+ */
 @NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
 public class SupportedProtocolConstant {
   public static final String HTTP_PROTOCOL = "http";
   public static final String HTTPS_PROTOCOL = "https";
   public static final String FTP_PROTOCOL = "ftp";
   public static final String SFTP_PROTOCOL = "sftp";
-
-  public static final Set<String> ALL_SUPPORTED_PROTOCOLS = Set.of(
-      HTTP_PROTOCOL,
-      HTTPS_PROTOCOL,
-      FTP_PROTOCOL,
-      SFTP_PROTOCOL
-  );
+  public static final String S3_PROTOCOL = "s3";
 }
@@ -0,0 +1,247 @@
+package com.company.file.daemon;
+
+import com.company.file.enums.DownloadOrderEnum;
+import com.company.file.model.DownloadBulkResult;
+import com.company.file.model.DownloadJob;
+import com.company.file.model.DownloadOption;
+import com.company.file.model.TransferDeadline;
+import com.company.file.model.config.DownloadConfiguration;
+import com.company.file.model.request.SubmitJobRequest;
+import com.company.file.model.request.UpdateLimitsRequest;
+import com.company.file.service.FileDownloaderService;
+import com.company.file.util.CollectionUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * long-running mode which keeps one warm FileDownloaderService (and its protocol registry) alive
+ * and exposes a local http/json control api :
+ * - POST   /jobs              submit uri list, body : {"uris" : [...], "numberOfRetry" : 3, "downloadLocation" : "downloads",
+ *                             "transferTimeoutSeconds" : 600, "stallTimeoutSeconds" : 30,
+ *                             "downloadOrder" : "LARGEST_FIRST", "sizeHints" : {"https://..." : 1048576}}
+ * - GET    /jobs/{id}         get job progress
+ * - DELETE /jobs/{id}         cancel job
+ * - POST   /jobs/{id}/pause   pause job
+ * - POST   /jobs/{id}/resume  resume job
+ * - PUT    /limits            change limits, body : {"corePoolSize" : 4}
+ * - GET    /protocols         supported schemes and their capabilities
+ * the server only listens on the loopback address.
+ */
+@Slf4j
+public class FileDownloaderDaemon {
+  private static final int DEFAULT_PORT = 8080;
+  private static final int CONTROL_THREAD_COUNT = 2;
+  private static final long FINISHED_JOB_RETENTION_MILLIS = TimeUnit.HOURS.toMillis(1);
+  private static final long PURGE_INTERVAL_MINUTES = 5;
+  private static final String JOBS_PATH = "/jobs";
+  private static final String LIMITS_PATH = "/limits";
+  private static final String PROTOCOLS_PATH = "/protocols";
+  private static final String PAUSE_SUFFIX = "/pause";
+  private static final String RESUME_SUFFIX = "/resume";
+
+  private final FileDownloaderService fileDownloaderService;
+  private final ScheduledThreadPoolExecutor scheduledExecutorService;
+  private final DownloadConfiguration downloadConfiguration;
+  private final ObjectMapper objectMapper;
+
+  private HttpServer httpServer;
+  private ExecutorService controlExecutorService;
+
+  public FileDownloaderDaemon(FileDownloaderService fileDownloaderService,
+                              ScheduledThreadPoolExecutor scheduledExecutorService,
+                              DownloadConfiguration downloadConfiguration,
+                              ObjectMapper objectMapper) {
+    this.fileDownloaderService = fileDownloaderService;
+    this.scheduledExecutorService = scheduledExecutorService;
+    this.downloadConfiguration = downloadConfiguration;
+    this.objectMapper = objectMapper;
+  }
+
+  public void start() throws IOException {
+    final int port = downloadConfiguration.getDaemonPort() != null ? downloadConfiguration.getDaemonPort() : DEFAULT_PORT;
+    httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    httpServer.createContext(JOBS_PATH, this::handleJobs);
+    httpServer.createContext(LIMITS_PATH, this::handleLimits);
+    httpServer.createContext(PROTOCOLS_PATH, this::handleProtocols);
+    // control requests must not wait behind download tasks, so they get their own threads
+    controlExecutorService = Executors.newFixedThreadPool(CONTROL_THREAD_COUNT);
+    httpServer.setExecutor(controlExecutorService);
+    httpServer.start();
+
+    scheduledExecutorService.scheduleAtFixedRate(
+        () -> fileDownloaderService.purgeFinishedDownloadJobs(FINISHED_JOB_RETENTION_MILLIS),
+        PURGE_INTERVAL_MINUTES, PURGE_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    log.info("method start daemon listening on port : {}, corePoolSize : {}", getPort(), scheduledExecutorService.getCorePoolSize());
+  }
+
+  public void stop() {
+    if (httpServer != null) {
+      httpServer.stop(0);
+    }
+    if (controlExecutorService != null) {
+      controlExecutorService.shutdownNow();
+    }
+  }
+
+  /**
+   * @return port the daemon listens on, the actual one when daemonPort is 0
+   */
+  public int getPort() {
+    return httpServer.getAddress().getPort();
+  }
+
+  private void handleJobs(HttpExchange exchange) throws IOException {
+    try {
+      final String path = exchange.getRequestURI().getPath();
+      final String method = exchange.getRequestMethod();
+      if (path.equals(JOBS_PATH) || path.equals(JOBS_PATH + "/")) {
+        if ("POST".equals(method)) {
+          submitJob(exchange);
+          return;
+        }
+        writeJson(exchange, HttpURLConnection.HTTP_BAD_METHOD, Map.of("error", "method not allowed"));
+        return;
+      }
+
+      final String jobPath = path.substring(JOBS_PATH.length() + 1);
+      if ("POST".equals(method) && jobPath.endsWith(PAUSE_SUFFIX)) {
+        changeJobState(exchange, jobPath.substring(0, jobPath.length() - PAUSE_SUFFIX.length()), true);
+        return;
+      }
+      if ("POST".equals(method) && jobPath.endsWith(RESUME_SUFFIX)) {
+        changeJobState(exchange, jobPath.substring(0, jobPath.length() - RESUME_SUFFIX.length()), false);
+        return;
+      }
+
+      final String jobId = jobPath;
+      if ("GET".equals(method)) {
+        DownloadJob downloadJob = fileDownloaderService.getDownloadJob(jobId);
+        if (downloadJob == null) {
+          writeJson(exchange, HttpURLConnection.HTTP_NOT_FOUND, Map.of("error", "job not found"));
+          return;
+        }
+        writeJson(exchange, HttpURLConnection.HTTP_OK, downloadJob);
+        return;
+      }
+      if ("DELETE".equals(method)) {
+        if (!fileDownloaderService.cancelDownloadJob(jobId)) {
+          writeJson(exchange, HttpURLConnection.HTTP_NOT_FOUND, Map.of("error", "job not found"));
+          return;
+        }
+        writeJson(exchange, HttpURLConnection.HTTP_OK, fileDownloaderService.getDownloadJob(jobId));
+        return;
+      }
+      writeJson(exchange, HttpURLConnection.HTTP_BAD_METHOD, Map.of("error", "method not allowed"));
+    } catch (Exception e) {
+      log.error("method handleJobs error for uri : {}", exchange.getRequestURI(), e);
+      writeJson(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR, Map.of("error", String.valueOf(e.getMessage())));
+    }
+  }
+
+  private void changeJobState(HttpExchange exchange, String jobId, boolean pause) throws IOException {
+    final boolean changed = pause ? fileDownloaderService.pauseDownloadJob(jobId) : fileDownloaderService.resumeDownloadJob(jobId);
+    if (!changed) {
+      writeJson(exchange, HttpURLConnection.HTTP_NOT_FOUND, Map.of("error", "job not found or already cancelled"));
+      return;
+    }
+    writeJson(exchange, HttpURLConnection.HTTP_OK, fileDownloaderService.getDownloadJob(jobId));
+  }
+
+  private void submitJob(HttpExchange exchange) throws IOException {
+    SubmitJobRequest submitJobRequest;
+    try {
+      submitJobRequest = objectMapper.readValue(exchange.getRequestBody(), SubmitJobRequest.class);
+    } catch (Exception e) {
+      writeJson(exchange, HttpURLConnection.HTTP_BAD_REQUEST, Map.of("error", "invalid request body"));
+      return;
+    }
+    if (CollectionUtil.isEmpty(submitJobRequest.getUris())) {
+      writeJson(exchange, HttpURLConnection.HTTP_BAD_REQUEST, Map.of("error", "uris must not be empty"));
+      return;
+    }
+
+    final int numberOfRetry = submitJobRequest.getNumberOfRetry() != null
+        ? submitJobRequest.getNumberOfRetry()
+        : downloadConfiguration.getNumberOfRetry();
+    final String downloadLocation = submitJobRequest.getDownloadLocation() != null
+        ? submitJobRequest.getDownloadLocation()
+        : downloadConfiguration.getDownloadLocation();
+    final long transferTimeoutSeconds = submitJobRequest.getTransferTimeoutSeconds() != null
+        ? submitJobRequest.getTransferTimeoutSeconds()
+        : downloadConfiguration.getTransferTimeoutSeconds();
+    final long stallTimeoutSeconds = submitJobRequest.getStallTimeoutSeconds() != null
+        ? submitJobRequest.getStallTimeoutSeconds()
+        : downloadConfiguration.getStallTimeoutSeconds();
+
+    final DownloadOrderEnum downloadOrder = submitJobRequest.getDownloadOrder() != null
+        ? submitJobRequest.getDownloadOrder()
+        : downloadConfiguration.getDownloadOrder();
+    final List<String> additionalDownloadLocations = submitJobRequest.getAdditionalDownloadLocations() != null
+        ? submitJobRequest.getAdditionalDownloadLocations()
+        : downloadConfiguration.getAdditionalDownloadLocations();
+
+    DownloadBulkResult downloadBulkResult = fileDownloaderService.downloadBulk(
+        new HashSet<>(submitJobRequest.getUris()),
+        new DownloadOption(numberOfRetry, downloadLocation, TransferDeadline.ofSeconds(transferTimeoutSeconds, stallTimeoutSeconds),
+            downloadOrder, submitJobRequest.getSizeHints(), additionalDownloadLocations));
+    final int status = downloadBulkResult.getJobId() != null ? HttpURLConnection.HTTP_ACCEPTED : HttpURLConnection.HTTP_BAD_REQUEST;
+    writeJson(exchange, status, downloadBulkResult);
+  }
+
+  private void handleLimits(HttpExchange exchange) throws IOException {
+    try {
+      if ("GET".equals(exchange.getRequestMethod())) {
+        writeJson(exchange, HttpURLConnection.HTTP_OK, Map.of("corePoolSize", scheduledExecutorService.getCorePoolSize()));
+        return;
+      }
+      if (!"PUT".equals(exchange.getRequestMethod())) {
+        writeJson(exchange, HttpURLConnection.HTTP_BAD_METHOD, Map.of("error", "method not allowed"));
+        return;
+      }
+
+      UpdateLimitsRequest updateLimitsRequest = objectMapper.readValue(exchange.getRequestBody(), UpdateLimitsRequest.class);
+      if (updateLimitsRequest.getCorePoolSize() == null || updateLimitsRequest.getCorePoolSize() < 1) {
+        writeJson(exchange, HttpURLConnection.HTTP_BAD_REQUEST, Map.of("error", "corePoolSize must be greater than 0"));
+        return;
+      }
+      scheduledExecutorService.setCorePoolSize(updateLimitsRequest.getCorePoolSize());
+      log.info("method handleLimits corePoolSize changed to : {}", updateLimitsRequest.getCorePoolSize());
+      writeJson(exchange, HttpURLConnection.HTTP_OK, Map.of("corePoolSize", scheduledExecutorService.getCorePoolSize()));
+    } catch (Exception e) {
+      log.error("method handleLimits error", e);
+      writeJson(exchange, HttpURLConnection.HTTP_BAD_REQUEST, Map.of("error", "invalid request body"));
+    }
+  }
+
+  private void handleProtocols(HttpExchange exchange) throws IOException {
+    if (!"GET".equals(exchange.getRequestMethod())) {
+      writeJson(exchange, HttpURLConnection.HTTP_BAD_METHOD, Map.of("error", "method not allowed"));
+      return;
+    }
+    writeJson(exchange, HttpURLConnection.HTTP_OK, fileDownloaderService.getSupportedProtocols());
+  }
+
+  private void writeJson(HttpExchange exchange, int status, Object body) throws IOException {
+    byte[] response = objectMapper.writeValueAsBytes(body);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, response.length);
+    try (OutputStream outputStream = exchange.getResponseBody()) {
+      outputStream.write(response);
+    }
+  }
+}
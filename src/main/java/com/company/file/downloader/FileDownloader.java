@@ -1,7 +1,47 @@
 package com.company.file.downloader;
 
+import com.company.file.enums.FileDownloaderCapabilityEnum;
+
 import java.net.URI;
+import java.util.Set;
 
+/**
+ * protocol plugin.
+ * implementation is discovered through ServiceLoader (listed in META-INF/services/com.company.file.downloader.FileDownloader),
+ * so it needs a public no-arg constructor and must be thread safe : one instance serves every uri of its schemes.
+ */
 public interface FileDownloader {
-  void download(URI uri, String outputPath) throws Exception;
+  long UNKNOWN_SIZE = -1;
+
+  /**
+   * @return lower case uri schemes handled by this downloader, e.g. http, https
+   */
+  Set<String> getSupportedSchemes();
+
+  /**
+   * @return optional features implemented by this downloader
+   */
+  default Set<FileDownloaderCapabilityEnum> getCapabilities() {
+    return Set.of();
+  }
+
+  /**
+   * download the uri into outputPath.
+   * implementation should register its connection to the transfer context, so it can be closed when the transfer is aborted.
+   *
+   * @param uri             uri object
+   * @param outputPath      where the downloaded file will be put
+   * @param transferContext transfer context of the current uri
+   */
+  void download(URI uri, String outputPath, TransferContext transferContext) throws Exception;
+
+  /**
+   * get the remote size without downloading the file, only called when SIZE_PROBE is declared.
+   *
+   * @param uri uri object
+   * @return size in bytes, or UNKNOWN_SIZE when the server cannot tell
+   */
+  default long probeSize(URI uri) throws Exception {
+    return UNKNOWN_SIZE;
+  }
 }
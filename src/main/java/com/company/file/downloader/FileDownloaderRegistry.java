@@ -0,0 +1,53 @@
+package com.company.file.downloader;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * build the protocol registry (scheme -> FileDownloader) from the downloaders found on the classpath.
+ * when two downloaders declare the same scheme, the first one found is kept.
+ * a downloader which fails to load is logged and skipped, its schemes are then not supported.
+ */
+@Slf4j
+public class FileDownloaderRegistry {
+  private FileDownloaderRegistry() {
+  }
+
+  public static Map<String, FileDownloader> load() {
+    return load(ServiceLoader.load(FileDownloader.class));
+  }
+
+  static Map<String, FileDownloader> load(Iterable<FileDownloader> fileDownloaders) {
+    Map<String, FileDownloader> fileDownloaderProtocolRegistry = new HashMap<>();
+    Iterator<FileDownloader> iterator = fileDownloaders.iterator();
+    while (true) {
+      FileDownloader fileDownloader;
+      try {
+        if (!iterator.hasNext()) {
+          break;
+        }
+        fileDownloader = iterator.next();
+      } catch (ServiceConfigurationError e) {
+        // e.g. a downloader whose configuration is invalid, the other protocols are still usable
+        log.error("method load skip downloader which can not be loaded, error : {}",
+            e.getCause() != null ? e.getCause().toString() : e.toString());
+        continue;
+      }
+      for (String scheme : fileDownloader.getSupportedSchemes()) {
+        FileDownloader registered = fileDownloaderProtocolRegistry.putIfAbsent(scheme.toLowerCase(), fileDownloader);
+        if (registered != null) {
+          log.warn("method load scheme : {} already registered by : {}, ignoring : {}", scheme, registered.getClass().getName(),
+              fileDownloader.getClass().getName());
+        }
+      }
+    }
+    log.info("method load registered schemes : {}", fileDownloaderProtocolRegistry.keySet());
+    return Collections.unmodifiableMap(fileDownloaderProtocolRegistry);
+  }
+}
@@ -0,0 +1,152 @@
+package com.company.file.downloader;
+
+import com.company.file.enums.TransferAbortReasonEnum;
+import com.company.file.exception.TransferAbortedException;
+import com.company.file.model.TransferDeadline;
+
+import java.io.Closeable;
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * handle of one uri transfer, shared between the worker doing the download and whoever wants to stop it
+ * (job cancel / pause, or the deadline watchdog).
+ * downloader should register its connection through {@link #onAbort(Closeable)} so that a blocking read is interrupted
+ * by closing the connection, and should let {@link com.company.file.util.FileDownloaderUtil#saveFile} report the progress.
+ */
+public class TransferContext {
+  private final TransferDeadline transferDeadline;
+  private final Clock clock;
+  private final long startedAt;
+  private final long expectedSize;
+  private final AtomicReference<TransferAbortReasonEnum> abortReason = new AtomicReference<>();
+  private final List<Closeable> abortCloseableList = new CopyOnWriteArrayList<>();
+  // several threads can report progress when a downloader reads ranges in parallel
+  private final AtomicLong transferredBytes = new AtomicLong();
+  private volatile long lastProgressAt;
+
+  public TransferContext(TransferDeadline transferDeadline, Clock clock) {
+    this(transferDeadline, clock, FileDownloader.UNKNOWN_SIZE);
+  }
+
+  /**
+   * @param expectedSize size hint or probed size of the uri, FileDownloader.UNKNOWN_SIZE when not known
+   */
+  public TransferContext(TransferDeadline transferDeadline, Clock clock, long expectedSize) {
+    this.transferDeadline = transferDeadline;
+    this.clock = clock;
+    this.expectedSize = expectedSize;
+    this.startedAt = clock.millis();
+    this.lastProgressAt = startedAt;
+  }
+
+  /**
+   * reset the per-attempt state before each (re)try.
+   * a stalled attempt can be retried, any other abort reason is final.
+   */
+  public void beginAttempt() {
+    abortCloseableList.clear();
+    abortReason.compareAndSet(TransferAbortReasonEnum.STALLED, null);
+    lastProgressAt = clock.millis();
+    transferredBytes.set(0);
+  }
+
+  /**
+   * register resource to be closed when the transfer is aborted.
+   * if the transfer has already been aborted, the resource is closed right away.
+   *
+   * @param closeable connection / stream of the current attempt
+   */
+  public void onAbort(Closeable closeable) {
+    abortCloseableList.add(closeable);
+    if (isAborted()) {
+      closeQuietly(closeable);
+    }
+  }
+
+  public void recordProgress(long bytes) {
+    transferredBytes.addAndGet(bytes);
+    lastProgressAt = clock.millis();
+  }
+
+  /**
+   * abort the transfer and close the registered resources. the first reason is kept, except a stall which is replaced by any
+   * other reason, so a cancel / pause arriving after the stall is not cleared by the next attempt.
+   *
+   * @param reason why the transfer is aborted
+   */
+  public void abort(TransferAbortReasonEnum reason) {
+    TransferAbortReasonEnum current;
+    do {
+      current = abortReason.get();
+      if (current != null && (current != TransferAbortReasonEnum.STALLED || reason == TransferAbortReasonEnum.STALLED)) {
+        return;
+      }
+    } while (!abortReason.compareAndSet(current, reason));
+    abortCloseableList.forEach(TransferContext::closeQuietly);
+  }
+
+  /**
+   * check the deadlines, called periodically by the watchdog.
+   *
+   * @return the abort reason when one of the deadline has passed, otherwise null
+   */
+  public TransferAbortReasonEnum checkDeadline() {
+    final long now = clock.millis();
+    if (transferDeadline.getTotalTimeoutMillis() > 0 && now - startedAt > transferDeadline.getTotalTimeoutMillis()) {
+      return TransferAbortReasonEnum.DEADLINE_EXCEEDED;
+    }
+    if (transferDeadline.getStallTimeoutMillis() > 0 && now - lastProgressAt > transferDeadline.getStallTimeoutMillis()) {
+      return TransferAbortReasonEnum.STALLED;
+    }
+    return null;
+  }
+
+  public void checkNotAborted() throws TransferAbortedException {
+    TransferAbortReasonEnum reason = abortReason.get();
+    if (reason != null) {
+      throw new TransferAbortedException(reason);
+    }
+  }
+
+  public boolean isAborted() {
+    return abortReason.get() != null;
+  }
+
+  public TransferAbortReasonEnum getAbortReason() {
+    return abortReason.get();
+  }
+
+  /**
+   * @return true when the failed attempt can be retried
+   */
+  public boolean isRetryable() {
+    TransferAbortReasonEnum reason = abortReason.get();
+    return reason == null || reason == TransferAbortReasonEnum.STALLED;
+  }
+
+  public boolean hasDeadline() {
+    return transferDeadline.hasDeadline();
+  }
+
+  public long getTransferredBytes() {
+    return transferredBytes.get();
+  }
+
+  /**
+   * @return size already known for the uri (hint or probe), so the downloader can skip its own probe, or FileDownloader.UNKNOWN_SIZE
+   */
+  public long getExpectedSize() {
+    return expectedSize;
+  }
+
+  private static void closeQuietly(Closeable closeable) {
+    try {
+      closeable.close();
+    } catch (Exception ignored) {
+    }
+  }
+}
@@ -1,27 +1,59 @@
 package com.company.file.downloader.impl;
 
+import com.company.file.constant.SupportedProtocolConstant;
 import com.company.file.downloader.FileDownloader;
+import com.company.file.downloader.TransferContext;
+import com.company.file.enums.FileDownloaderCapabilityEnum;
 import com.company.file.util.FileDownloaderUtil;
 import org.apache.commons.net.ftp.FTPClient;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.util.Set;
 
 public class FtpFileDownloader implements FileDownloader {
+  private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+  private static final int READ_TIMEOUT_MILLIS = 10000;
+
+  @Override
+  public Set<String> getSupportedSchemes() {
+    return Set.of(SupportedProtocolConstant.FTP_PROTOCOL);
+  }
+
   @Override
-  public void download(URI uri, String outputPath) throws Exception {
+  public Set<FileDownloaderCapabilityEnum> getCapabilities() {
+    return Set.of(FileDownloaderCapabilityEnum.SIZE_PROBE);
+  }
+
+  @Override
+  public void download(URI uri, String outputPath, TransferContext transferContext) throws Exception {
     FTPClient ftpClient = new FTPClient();
+    transferContext.onAbort(ftpClient::disconnect);
     try {
-      String host = uri.getHost();
-      int port = uri.getPort() != -1 ? uri.getPort() : 21; // Default FTP port is 21
-      String username = uri.getUserInfo() != null ? uri.getUserInfo().split(":")[0] : "anonymous"; // Default username is "anonymous"
-      String password = uri.getUserInfo() != null ? uri.getUserInfo().split(":")[1] : "anonymous"; // Default password is "anonymous"
-      String filePath = uri.getPath();
+      connect(ftpClient, uri);
+
+      InputStream inputStream = ftpClient.retrieveFileStream(uri.getPath());
+      if (inputStream == null) {
+        throw new IOException("failed to retrieve file, reply : " + ftpClient.getReplyString());
+      }
+      FileDownloaderUtil.saveFile(inputStream, outputPath, transferContext);
+    } finally {
+      try {
+        ftpClient.disconnect();
+      } catch (Exception ignored) {
+      }
+    }
+  }
 
-      ftpClient.connect(host, port);
-      ftpClient.login(username, password);
-      ftpClient.enterLocalPassiveMode();
+  @Override
+  public long probeSize(URI uri) throws Exception {
+    FTPClient ftpClient = new FTPClient();
+    try {
+      connect(ftpClient, uri);
 
-      FileDownloaderUtil.saveFile(ftpClient.retrieveFileStream(filePath), outputPath);
+      String size = ftpClient.getSize(uri.getPath());
+      return size != null ? Long.parseLong(size.trim()) : UNKNOWN_SIZE;
     } finally {
       try {
         ftpClient.disconnect();
@@ -29,4 +61,18 @@ public class FtpFileDownloader implements FileDownloader {
       }
     }
   }
+
+  private void connect(FTPClient ftpClient, URI uri) throws IOException {
+    String host = uri.getHost();
+    int port = uri.getPort() != -1 ? uri.getPort() : 21; // Default FTP port is 21
+    String username = uri.getUserInfo() != null ? uri.getUserInfo().split(":")[0] : "anonymous"; // Default username is "anonymous"
+    String password = uri.getUserInfo() != null ? uri.getUserInfo().split(":")[1] : "anonymous"; // Default password is "anonymous"
+
+    ftpClient.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+    ftpClient.setDefaultTimeout(READ_TIMEOUT_MILLIS); // read timeout of the control connection
+    ftpClient.setDataTimeout(READ_TIMEOUT_MILLIS); // read timeout of the data connection
+    ftpClient.connect(host, port);
+    ftpClient.login(username, password);
+    ftpClient.enterLocalPassiveMode();
+  }
 }
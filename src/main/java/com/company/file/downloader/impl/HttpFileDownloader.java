@@ -1,24 +1,58 @@
 package com.company.file.downloader.impl;
 
+import com.company.file.constant.SupportedProtocolConstant;
 import com.company.file.downloader.FileDownloader;
+import com.company.file.downloader.TransferContext;
+import com.company.file.enums.FileDownloaderCapabilityEnum;
 import com.company.file.util.FileDownloaderUtil;
 import lombok.extern.slf4j.Slf4j;
 
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
+import java.util.Set;
 
 @Slf4j
 public class HttpFileDownloader implements FileDownloader {
   @Override
-  public void download(URI uri, String outputPath) throws Exception {
+  public Set<String> getSupportedSchemes() {
+    return Set.of(SupportedProtocolConstant.HTTP_PROTOCOL, SupportedProtocolConstant.HTTPS_PROTOCOL);
+  }
+
+  @Override
+  public Set<FileDownloaderCapabilityEnum> getCapabilities() {
+    return Set.of(FileDownloaderCapabilityEnum.SIZE_PROBE);
+  }
+
+  @Override
+  public void download(URI uri, String outputPath, TransferContext transferContext) throws Exception {
     HttpURLConnection conn = null;
     try {
       URL url = uri.toURL();
       conn = (HttpURLConnection) url.openConnection();
+      transferContext.onAbort(conn::disconnect);
       conn.setConnectTimeout(5000); // Set connection timeout to 5 seconds
       conn.setReadTimeout(10000); // Set read timeout to 10 seconds
-      FileDownloaderUtil.saveFile(conn.getInputStream(), outputPath);
+      FileDownloaderUtil.saveFile(conn.getInputStream(), outputPath, transferContext);
+    } finally {
+      if (conn != null) {
+        conn.disconnect();
+      }
+    }
+  }
+
+  @Override
+  public long probeSize(URI uri) throws Exception {
+    HttpURLConnection conn = null;
+    try {
+      conn = (HttpURLConnection) uri.toURL().openConnection();
+      conn.setRequestMethod("HEAD");
+      conn.setConnectTimeout(5000); // Set connection timeout to 5 seconds
+      conn.setReadTimeout(10000); // Set read timeout to 10 seconds
+      if (conn.getResponseCode() >= HttpURLConnection.HTTP_BAD_REQUEST) {
+        return UNKNOWN_SIZE;
+      }
+      return conn.getContentLengthLong();
     } finally {
       if (conn != null) {
         conn.disconnect();
@@ -0,0 +1,268 @@
+package com.company.file.downloader.impl;
+
+import com.company.file.constant.SupportedProtocolConstant;
+import com.company.file.downloader.FileDownloader;
+import com.company.file.downloader.TransferContext;
+import com.company.file.enums.FileDownloaderCapabilityEnum;
+import com.company.file.model.config.S3Configuration;
+import com.company.file.util.FileDownloaderUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * download s3://{bucket}/{key} from an s3-compatible object store (aws s3, minio, ...).
+ * object larger than the part size is downloaded with parallel ranged GETs written in place into the output file,
+ * at most parallelism ranged GETs per object.
+ */
+@Slf4j
+public class S3FileDownloader implements FileDownloader {
+  private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+  private static final int READ_TIMEOUT_MILLIS = 10000;
+  private static final long PART_THREAD_KEEP_ALIVE_SECONDS = 60;
+  private static final DateTimeFormatter AMZ_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+  private final S3Configuration s3Configuration;
+  private final S3RequestSigner s3RequestSigner;
+  private final Clock clock;
+  private final ThreadPoolExecutor partExecutorService;
+
+  public S3FileDownloader() {
+    this(S3Configuration.fromEnvironment(), Clock.systemUTC());
+  }
+
+  public S3FileDownloader(S3Configuration s3Configuration, Clock clock) {
+    this.s3Configuration = s3Configuration;
+    this.s3RequestSigner = new S3RequestSigner(s3Configuration.getRegion(), s3Configuration.getAccessKey(), s3Configuration.getSecretKey());
+    this.clock = clock;
+    // helpers shared by every s3 transfer, threads are only created when a multipart download happens
+    final int helperThreadCount = Math.max(1, s3Configuration.getParallelism() - 1);
+    this.partExecutorService = new ThreadPoolExecutor(helperThreadCount, helperThreadCount,
+        PART_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+      Thread thread = new Thread(runnable, "s3-part");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.partExecutorService.allowCoreThreadTimeOut(true);
+  }
+
+  @Override
+  public Set<String> getSupportedSchemes() {
+    return Set.of(SupportedProtocolConstant.S3_PROTOCOL);
+  }
+
+  @Override
+  public Set<FileDownloaderCapabilityEnum> getCapabilities() {
+    return Set.of(FileDownloaderCapabilityEnum.SIZE_PROBE);
+  }
+
+  /**
+   * a known size up to the part size is enough to go for a single GET, which is correct whatever the real size is.
+   * a larger object is probed anyway : the parts are laid out from the exact size, a wrong hint would truncate the file.
+   */
+  @Override
+  public void download(URI uri, String outputPath, TransferContext transferContext) throws Exception {
+    final long expectedSize = transferContext.getExpectedSize();
+    final boolean singleRequest = expectedSize != UNKNOWN_SIZE && expectedSize <= s3Configuration.getPartSizeBytes();
+    final long size = singleRequest ? expectedSize : probeSize(uri);
+    if (size <= s3Configuration.getPartSizeBytes()) {
+      HttpURLConnection conn = null;
+      try {
+        conn = openConnection("GET", uri, null);
+        transferContext.onAbort(conn::disconnect);
+        checkResponse(conn, HttpURLConnection.HTTP_OK, uri);
+        FileDownloaderUtil.saveFile(conn.getInputStream(), outputPath, transferContext);
+      } finally {
+        if (conn != null) {
+          conn.disconnect();
+        }
+      }
+      return;
+    }
+
+    downloadMultipart(uri, outputPath, size, transferContext);
+  }
+
+  @Override
+  public long probeSize(URI uri) throws Exception {
+    HttpURLConnection conn = null;
+    try {
+      conn = openConnection("HEAD", uri, null);
+      checkResponse(conn, HttpURLConnection.HTTP_OK, uri);
+      return conn.getContentLengthLong();
+    } finally {
+      if (conn != null) {
+        conn.disconnect();
+      }
+    }
+  }
+
+  /**
+   * split the object into parts of partSizeBytes and write each part at its offset, at most parallelism parts at the same time.
+   * the calling worker downloads parts itself and up to parallelism - 1 helpers from the shared part pool join it.
+   * the parts are taken in turn by whoever is free, so a helper still queued behind other transfers does not hold back any part :
+   * the transfer keeps progressing (and is not seen as stalled) even when every pooled thread is busy.
+   * when one part fails, the remaining parts are cancelled and the file is removed.
+   */
+  private void downloadMultipart(URI uri, String outputPath, long size, TransferContext transferContext) throws Exception {
+    final long partSizeBytes = s3Configuration.getPartSizeBytes();
+    final long partCount = (size + partSizeBytes - 1) / partSizeBytes;
+    MultipartProgress multipartProgress = new MultipartProgress(partCount);
+    List<Future<?>> helperFutureList = new ArrayList<>();
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(outputPath, "rw")) {
+      randomAccessFile.setLength(size);
+      FileChannel fileChannel = randomAccessFile.getChannel();
+      final long helperCount = Math.min(s3Configuration.getParallelism() - 1, partCount - 1);
+      for (long i = 0; i < helperCount; i++) {
+        helperFutureList.add(partExecutorService.submit(() -> {
+          downloadParts(uri, fileChannel, size, multipartProgress, transferContext);
+          return null;
+        }));
+      }
+      log.debug("method downloadMultipart uri : {}, size : {}, total part : {}, total helper : {}", uri, size, partCount, helperCount);
+
+      downloadParts(uri, fileChannel, size, multipartProgress, transferContext);
+      // every part has been taken, the ones still downloaded by a helper are awaited
+      multipartProgress.remainingPartLatch.await();
+      if (multipartProgress.failure.get() != null) {
+        throw multipartProgress.failure.get();
+      }
+      // a helper which has not started yet has nothing left to do
+      helperFutureList.forEach(helperFuture -> helperFuture.cancel(false));
+    } catch (Exception e) {
+      multipartProgress.fail(e);
+      helperFutureList.forEach(helperFuture -> helperFuture.cancel(true));
+      try {
+        Files.deleteIfExists(Paths.get(outputPath));
+      } catch (Exception ignored) {
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * download the next part not taken yet until every part is taken or one of them has failed.
+   */
+  private void downloadParts(URI uri, FileChannel fileChannel, long size, MultipartProgress multipartProgress,
+                             TransferContext transferContext) throws IOException {
+    final long partSizeBytes = s3Configuration.getPartSizeBytes();
+    long offset;
+    while (multipartProgress.failure.get() == null && (offset = multipartProgress.nextPartIndex.getAndIncrement() * partSizeBytes) < size) {
+      try {
+        downloadPart(uri, fileChannel, offset, Math.min(partSizeBytes, size - offset), transferContext);
+        multipartProgress.remainingPartLatch.countDown();
+      } catch (IOException | RuntimeException e) {
+        multipartProgress.fail(e);
+        throw e;
+      }
+    }
+  }
+
+  private void downloadPart(URI uri, FileChannel fileChannel, long offset, long length, TransferContext transferContext) throws IOException {
+    HttpURLConnection conn = null;
+    try {
+      conn = openConnection("GET", uri, "bytes=" + offset + "-" + (offset + length - 1));
+      transferContext.onAbort(conn::disconnect);
+      checkResponse(conn, HttpURLConnection.HTTP_PARTIAL, uri);
+      FileDownloaderUtil.saveRange(conn.getInputStream(), fileChannel, offset, length, transferContext);
+    } finally {
+      if (conn != null) {
+        conn.disconnect();
+      }
+    }
+  }
+
+  /**
+   * open a path-style request ({endpoint}/{bucket}/{key}), signed when credentials are configured.
+   *
+   * @param method http method
+   * @param uri    s3://{bucket}/{key}
+   * @param range  value of the Range header, null for the whole object
+   */
+  private HttpURLConnection openConnection(String method, URI uri, String range) throws IOException {
+    final String bucket = uri.getAuthority();
+    final String key = uri.getPath().startsWith("/") ? uri.getPath().substring(1) : uri.getPath();
+    final String canonicalUri = "/" + S3RequestSigner.uriEncode(bucket, true) + "/" + S3RequestSigner.uriEncode(key, false);
+    final String endpoint = s3Configuration.getEndpoint().endsWith("/")
+        ? s3Configuration.getEndpoint().substring(0, s3Configuration.getEndpoint().length() - 1)
+        : s3Configuration.getEndpoint();
+    URL url = new URL(endpoint + canonicalUri);
+
+    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+    conn.setRequestMethod(method);
+    conn.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+    conn.setReadTimeout(READ_TIMEOUT_MILLIS);
+    if (range != null) {
+      conn.setRequestProperty("Range", range);
+    }
+    if (!s3Configuration.hasCredentials()) {
+      return conn;
+    }
+
+    final String amzDate = AMZ_DATE_FORMATTER.format(clock.instant());
+    Map<String, String> signedHeaders = new LinkedHashMap<>();
+    // same value as the Host header sent by HttpURLConnection
+    signedHeaders.put("host", url.getPort() != -1 && url.getPort() != url.getDefaultPort() ? url.getHost() + ":" + url.getPort() : url.getHost());
+    signedHeaders.put("x-amz-content-sha256", S3RequestSigner.EMPTY_PAYLOAD_SHA256);
+    signedHeaders.put("x-amz-date", amzDate);
+    if (range != null) {
+      signedHeaders.put("range", range);
+    }
+    conn.setRequestProperty("x-amz-content-sha256", S3RequestSigner.EMPTY_PAYLOAD_SHA256);
+    conn.setRequestProperty("x-amz-date", amzDate);
+    conn.setRequestProperty("Authorization", s3RequestSigner.authorization(method, canonicalUri, "", signedHeaders, amzDate));
+    return conn;
+  }
+
+  private void checkResponse(HttpURLConnection conn, int expectedStatus, URI uri) throws IOException {
+    final int status = conn.getResponseCode();
+    if (status != expectedStatus) {
+      throw new IOException("unexpected response status : " + status + " for uri : " + uri + ", expected : " + expectedStatus);
+    }
+  }
+
+  /**
+   * parts of one multipart download, shared by the calling worker and its helpers.
+   */
+  private static class MultipartProgress {
+    private final AtomicLong nextPartIndex = new AtomicLong();
+    private final CountDownLatch remainingPartLatch;
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+    private MultipartProgress(long partCount) {
+      this.remainingPartLatch = new CountDownLatch((int) partCount);
+    }
+
+    /**
+     * keep the first failure and release whoever waits for the remaining parts.
+     */
+    private void fail(Exception e) {
+      failure.compareAndSet(null, e);
+      while (remainingPartLatch.getCount() > 0) {
+        remainingPartLatch.countDown();
+      }
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package com.company.file.downloader.impl;
+
+import com.company.file.util.DigestUtil;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * aws signature version 4 for s3 requests without body (GET / HEAD).
+ * see https://docs.aws.amazon.com/AmazonS3/latest/API/sig-v4-header-based-auth.html
+ */
+class S3RequestSigner {
+  static final String EMPTY_PAYLOAD_SHA256 = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+  private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+  private static final String SERVICE = "s3";
+
+  private final String region;
+  private final String accessKey;
+  private final String secretKey;
+
+  S3RequestSigner(String region, String accessKey, String secretKey) {
+    this.region = region;
+    this.accessKey = accessKey;
+    this.secretKey = secretKey;
+  }
+
+  /**
+   * compute the Authorization header.
+   *
+   * @param method         http method
+   * @param canonicalUri   uri-encoded path, exactly as sent
+   * @param canonicalQuery uri-encoded query sorted by name, empty when there is none
+   * @param headers        headers to sign, must contain host, x-amz-date and x-amz-content-sha256
+   * @param amzDate        request time in yyyyMMdd'T'HHmmss'Z'
+   * @return value of the Authorization header
+   */
+  String authorization(String method, String canonicalUri, String canonicalQuery, Map<String, String> headers, String amzDate) {
+    Map<String, String> sortedHeaders = new TreeMap<>();
+    headers.forEach((name, value) -> sortedHeaders.put(name.toLowerCase(), value.trim()));
+
+    StringBuilder canonicalHeaders = new StringBuilder();
+    sortedHeaders.forEach((name, value) -> canonicalHeaders.append(name).append(':').append(value).append('\n'));
+    final String signedHeaders = String.join(";", sortedHeaders.keySet());
+
+    final String canonicalRequest = method + '\n'
+        + canonicalUri + '\n'
+        + canonicalQuery + '\n'
+        + canonicalHeaders + '\n'
+        + signedHeaders + '\n'
+        + sortedHeaders.get("x-amz-content-sha256");
+
+    final String date = amzDate.substring(0, 8);
+    final String scope = date + '/' + region + '/' + SERVICE + "/aws4_request";
+    final String stringToSign = ALGORITHM + '\n'
+        + amzDate + '\n'
+        + scope + '\n'
+        + DigestUtil.toHexString(DigestUtil.sha256(canonicalRequest));
+
+    byte[] signingKey = hmacSha256(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), date);
+    signingKey = hmacSha256(signingKey, region);
+    signingKey = hmacSha256(signingKey, SERVICE);
+    signingKey = hmacSha256(signingKey, "aws4_request");
+    final String signature = DigestUtil.toHexString(hmacSha256(signingKey, stringToSign));
+
+    return ALGORITHM + " Credential=" + accessKey + '/' + scope + ", SignedHeaders=" + signedHeaders + ", Signature=" + signature;
+  }
+
+  /**
+   * uri-encode as required by signature version 4 : every byte except the unreserved characters is percent-encoded.
+   *
+   * @param value        value to be encoded
+   * @param encodeSlash  false for a path, so its segments are kept
+   * @return encoded value
+   */
+  static String uriEncode(String value, boolean encodeSlash) {
+    StringBuilder sb = new StringBuilder(value.length());
+    for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+      char c = (char) (b & 0xff);
+      if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+          || c == '-' || c == '_' || c == '.' || c == '~' || (c == '/' && !encodeSlash)) {
+        sb.append(c);
+      } else {
+        sb.append('%').append(Character.toUpperCase(DigestUtil.hexDigit(b >> 4))).append(Character.toUpperCase(DigestUtil.hexDigit(b)));
+      }
+    }
+    return sb.toString();
+  }
+
+  private static byte[] hmacSha256(byte[] key, String data) {
+    try {
+      Mac mac = Mac.getInstance("HmacSHA256");
+      mac.init(new SecretKeySpec(key, "HmacSHA256"));
+      return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    } catch (GeneralSecurityException e) {
+      //should not happen, every jvm has HmacSHA256
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -1,48 +1,93 @@
 package com.company.file.downloader.impl;
 
+import com.company.file.constant.SupportedProtocolConstant;
 import com.company.file.downloader.FileDownloader;
+import com.company.file.downloader.TransferContext;
+import com.company.file.enums.FileDownloaderCapabilityEnum;
 import com.company.file.util.FileDownloaderUtil;
 import com.jcraft.jsch.ChannelSftp;
 import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
 
 import java.net.URI;
+import java.util.Set;
 
 public class SftpFileDownloader implements FileDownloader {
+  private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+  private static final int READ_TIMEOUT_MILLIS = 10000;
+
+  @Override
+  public Set<String> getSupportedSchemes() {
+    return Set.of(SupportedProtocolConstant.SFTP_PROTOCOL);
+  }
+
   @Override
-  public void download(URI uri, String outputPath) throws Exception {
+  public Set<FileDownloaderCapabilityEnum> getCapabilities() {
+    return Set.of(FileDownloaderCapabilityEnum.SIZE_PROBE);
+  }
+
+  @Override
+  public void download(URI uri, String outputPath, TransferContext transferContext) throws Exception {
     Session session = null;
     ChannelSftp channelSftp = null;
     try {
-      String host = uri.getHost();
-      int port = uri.getPort() != -1 ? uri.getPort() : 21; // Default FTP port is 21
-      String username = uri.getUserInfo() != null ? uri.getUserInfo().split(":")[0] : "anonymous"; // Default username is "anonymous"
-      String password = uri.getUserInfo() != null ? uri.getUserInfo().split(":")[1] : "anonymous"; // Default password is "anonymous"
-      String filePath = uri.getPath();
-
-      JSch jsch = new JSch();
-      session = jsch.getSession(username, host, port);
-
-      session.setConfig("StrictHostKeyChecking", "no");
-      if (password != null) {
-        session.setPassword(password);
-      }
-      session.connect();
+      session = createSession(uri);
+      transferContext.onAbort(session::disconnect);
+      session.connect(CONNECT_TIMEOUT_MILLIS);
 
       channelSftp = (ChannelSftp) session.openChannel("sftp");
-      channelSftp.connect();
+      channelSftp.connect(CONNECT_TIMEOUT_MILLIS);
 
-      FileDownloaderUtil.saveFile(channelSftp.get(filePath), outputPath);
+      FileDownloaderUtil.saveFile(channelSftp.get(uri.getPath()), outputPath, transferContext);
     } finally {
-      if (session != null) {
-        session.disconnect();
-      }
+      disconnect(session, channelSftp);
+    }
+  }
+
+  @Override
+  public long probeSize(URI uri) throws Exception {
+    Session session = null;
+    ChannelSftp channelSftp = null;
+    try {
+      session = createSession(uri);
+      session.connect(CONNECT_TIMEOUT_MILLIS);
+
+      channelSftp = (ChannelSftp) session.openChannel("sftp");
+      channelSftp.connect(CONNECT_TIMEOUT_MILLIS);
+
+      return channelSftp.stat(uri.getPath()).getSize();
+    } finally {
+      disconnect(session, channelSftp);
+    }
+  }
+
+  private Session createSession(URI uri) throws JSchException {
+    String host = uri.getHost();
+    int port = uri.getPort() != -1 ? uri.getPort() : 21; // Default FTP port is 21
+    String username = uri.getUserInfo() != null ? uri.getUserInfo().split(":")[0] : "anonymous"; // Default username is "anonymous"
+    String password = uri.getUserInfo() != null ? uri.getUserInfo().split(":")[1] : "anonymous"; // Default password is "anonymous"
+
+    JSch jsch = new JSch();
+    Session session = jsch.getSession(username, host, port);
+
+    session.setConfig("StrictHostKeyChecking", "no");
+    if (password != null) {
+      session.setPassword(password);
+    }
+    session.setTimeout(READ_TIMEOUT_MILLIS); // socket read timeout
+    return session;
+  }
+
+  private void disconnect(Session session, ChannelSftp channelSftp) {
+    if (session != null) {
+      session.disconnect();
+    }
 
-      if (channelSftp != null) {
-        try {
-          channelSftp.disconnect();
-        } catch (Exception ignored) {
-        }
+    if (channelSftp != null) {
+      try {
+        channelSftp.disconnect();
+      } catch (Exception ignored) {
       }
     }
   }
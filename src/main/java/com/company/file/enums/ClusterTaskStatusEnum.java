@@ -0,0 +1,8 @@
+package com.company.file.enums;
+
+public enum ClusterTaskStatusEnum {
+  PENDING,
+  LEASED,
+  SUCCEEDED,
+  FAILED,
+}
@@ -0,0 +1,8 @@
+package com.company.file.enums;
+
+public enum DownloadJobStatusEnum {
+  RUNNING,
+  PAUSED,
+  COMPLETED,
+  CANCELLED,
+}
@@ -0,0 +1,7 @@
+package com.company.file.enums;
+
+public enum DownloadOrderEnum {
+  NONE,
+  LARGEST_FIRST,
+  SMALLEST_FIRST,
+}
@@ -0,0 +1,5 @@
+package com.company.file.enums;
+
+public enum FileDownloaderCapabilityEnum {
+  SIZE_PROBE,
+}
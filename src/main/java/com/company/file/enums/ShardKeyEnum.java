@@ -0,0 +1,6 @@
+package com.company.file.enums;
+
+public enum ShardKeyEnum {
+  HOST,
+  URI,
+}
@@ -0,0 +1,8 @@
+package com.company.file.enums;
+
+public enum TransferAbortReasonEnum {
+  CANCELLED,
+  PAUSED,
+  DEADLINE_EXCEEDED,
+  STALLED,
+}
@@ -0,0 +1,7 @@
+package com.company.file.enums;
+
+public enum TransferOutcomeEnum {
+  SUCCEEDED,
+  FAILED,
+  SKIPPED,
+}
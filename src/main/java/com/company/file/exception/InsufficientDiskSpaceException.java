@@ -0,0 +1,12 @@
+package com.company.file.exception;
+
+import java.io.IOException;
+
+/**
+ * the file can not fit in any download location, even once every other transfer is finished.
+ */
+public class InsufficientDiskSpaceException extends IOException {
+  public InsufficientDiskSpaceException(String message) {
+    super(message);
+  }
+}
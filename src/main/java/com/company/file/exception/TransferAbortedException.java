@@ -0,0 +1,16 @@
+package com.company.file.exception;
+
+import com.company.file.enums.TransferAbortReasonEnum;
+import lombok.Getter;
+
+import java.io.IOException;
+
+@Getter
+public class TransferAbortedException extends IOException {
+  private final TransferAbortReasonEnum abortReason;
+
+  public TransferAbortedException(TransferAbortReasonEnum abortReason) {
+    super("transfer aborted : " + abortReason);
+    this.abortReason = abortReason;
+  }
+}
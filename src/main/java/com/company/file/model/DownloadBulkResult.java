@@ -12,18 +12,21 @@ import lombok.Value;
 public class DownloadBulkResult {
   DownloadStatusEnum downloadStatus;
   URIPreValidationResult uriPreValidationResult;
+  String jobId;
 
   public static DownloadBulkResult preValidationFailed(URIPreValidationResult uriPreValidationResult) {
     return new DownloadBulkResult(
         DownloadStatusEnum.PRE_VALIDATION_FAILED,
-        uriPreValidationResult
+        uriPreValidationResult,
+        null
     );
   }
 
-  public static DownloadBulkResult preValidationSuccess() {
+  public static DownloadBulkResult preValidationSuccess(String jobId) {
     return new DownloadBulkResult(
         DownloadStatusEnum.PRE_VALIDATION_SUCCESS,
-        null
+        null,
+        jobId
     );
   }
 }
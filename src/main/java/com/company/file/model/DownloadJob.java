@@ -0,0 +1,235 @@
+package com.company.file.model;
+
+import com.company.file.downloader.TransferContext;
+import com.company.file.downloader.FileDownloader;
+import com.company.file.enums.DownloadJobStatusEnum;
+import com.company.file.enums.DownloadOrderEnum;
+import com.company.file.enums.TransferAbortReasonEnum;
+import lombok.Getter;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * progress of one downloadBulk invocation.
+ * counters are updated by the worker threads, so every read is only a snapshot.
+ * while the job is paused, uri picked up by a worker is parked here instead of holding the worker.
+ */
+public class DownloadJob {
+  @Getter
+  private final String jobId;
+  @Getter
+  private final int totalUri;
+  @Getter
+  private final long submittedAt;
+  @Getter
+  private final int numberOfRetry;
+  @Getter
+  private final String downloadLocation;
+  // downloadLocation first, then the additional locations
+  @Getter
+  private final List<String> downloadLocationList;
+  @Getter
+  private final TransferDeadline transferDeadline;
+  @Getter
+  private final DownloadOrderEnum downloadOrder;
+  private final AtomicInteger succeeded = new AtomicInteger();
+  private final AtomicInteger failed = new AtomicInteger();
+  private final AtomicInteger skipped = new AtomicInteger();
+  private final AtomicInteger awaitingDiskSpace = new AtomicInteger();
+  private final Set<TransferContext> activeTransferContextSet = ConcurrentHashMap.newKeySet();
+  private final Queue<URI> parkedUriQueue = new ConcurrentLinkedQueue<>();
+  private final Map<URI, Long> expectedSizeMap = new ConcurrentHashMap<>();
+  private final CountDownLatch finishedLatch = new CountDownLatch(1);
+  @Getter
+  private volatile boolean cancelled;
+  @Getter
+  private volatile boolean paused;
+  @Getter
+  private volatile long finishedAt;
+
+  public DownloadJob(String jobId, int totalUri, long submittedAt, DownloadOption downloadOption) {
+    this.jobId = jobId;
+    this.totalUri = totalUri;
+    this.submittedAt = submittedAt;
+    this.numberOfRetry = downloadOption.getNumberOfRetry();
+    this.downloadLocation = downloadOption.getDownloadLocation();
+    List<String> downloadLocationList = new ArrayList<>();
+    downloadLocationList.add(downloadLocation);
+    if (downloadOption.getAdditionalDownloadLocationList() != null) {
+      downloadLocationList.addAll(downloadOption.getAdditionalDownloadLocationList());
+    }
+    this.downloadLocationList = Collections.unmodifiableList(downloadLocationList);
+    this.transferDeadline = downloadOption.getTransferDeadline() != null ? downloadOption.getTransferDeadline() : TransferDeadline.NONE;
+    this.downloadOrder = downloadOption.getDownloadOrder() != null ? downloadOption.getDownloadOrder() : DownloadOrderEnum.NONE;
+    if (totalUri == 0) {
+      this.finishedAt = submittedAt;
+      finishedLatch.countDown();
+    }
+  }
+
+  public int getSucceededCount() {
+    return succeeded.get();
+  }
+
+  public int getFailedCount() {
+    return failed.get();
+  }
+
+  public int getSkippedCount() {
+    return skipped.get();
+  }
+
+  public int getParkedCount() {
+    return parkedUriQueue.size();
+  }
+
+  /**
+   * @return uri waiting for enough free disk space before being started
+   */
+  public int getAwaitingDiskSpaceCount() {
+    return awaitingDiskSpace.get();
+  }
+
+  public int getFinishedCount() {
+    return succeeded.get() + failed.get() + skipped.get();
+  }
+
+  public DownloadJobStatusEnum getStatus() {
+    if (cancelled) {
+      return DownloadJobStatusEnum.CANCELLED;
+    }
+    if (isFinished()) {
+      return DownloadJobStatusEnum.COMPLETED;
+    }
+    return paused ? DownloadJobStatusEnum.PAUSED : DownloadJobStatusEnum.RUNNING;
+  }
+
+  public boolean isFinished() {
+    return getFinishedCount() >= totalUri;
+  }
+
+  /**
+   * cancel the job and abort the in-flight transfers.
+   */
+  public void cancel() {
+    this.cancelled = true;
+    abortActiveTransfers(TransferAbortReasonEnum.CANCELLED);
+  }
+
+  /**
+   * pause the job and abort the in-flight transfers, so every worker slot used by this job is released.
+   * aborted uri will be parked and started again from the beginning on resume.
+   */
+  public void pause() {
+    this.paused = true;
+    abortActiveTransfers(TransferAbortReasonEnum.PAUSED);
+  }
+
+  public void resume() {
+    this.paused = false;
+  }
+
+  public void addActiveTransfer(TransferContext transferContext) {
+    activeTransferContextSet.add(transferContext);
+    // cancel / pause may have been requested between the state check and the registration
+    if (cancelled) {
+      transferContext.abort(TransferAbortReasonEnum.CANCELLED);
+    } else if (paused) {
+      transferContext.abort(TransferAbortReasonEnum.PAUSED);
+    }
+  }
+
+  public void removeActiveTransfer(TransferContext transferContext) {
+    activeTransferContextSet.remove(transferContext);
+  }
+
+  private void abortActiveTransfers(TransferAbortReasonEnum reason) {
+    activeTransferContextSet.forEach(transferContext -> transferContext.abort(reason));
+  }
+
+  /**
+   * @param size expected size in bytes, UNKNOWN_SIZE records that the size has been probed without result
+   */
+  public void putExpectedSize(URI uri, long size) {
+    expectedSizeMap.put(uri, size);
+  }
+
+  /**
+   * @return false when the uri has neither a hint nor been probed yet
+   */
+  public boolean hasExpectedSize(URI uri) {
+    return expectedSizeMap.containsKey(uri);
+  }
+
+  /**
+   * @return expected size in bytes (from hint or probe), or UNKNOWN_SIZE
+   */
+  public long expectedSizeOf(URI uri) {
+    return expectedSizeMap.getOrDefault(uri, FileDownloader.UNKNOWN_SIZE);
+  }
+
+  public void awaitDiskSpace() {
+    awaitingDiskSpace.incrementAndGet();
+  }
+
+  public void stopAwaitingDiskSpace() {
+    awaitingDiskSpace.decrementAndGet();
+  }
+
+  public void park(URI uri) {
+    parkedUriQueue.add(uri);
+  }
+
+  /**
+   * @return next parked uri, or null when there is none left
+   */
+  public URI pollParkedUri() {
+    return parkedUriQueue.poll();
+  }
+
+  /**
+   * record the outcome of one uri.
+   *
+   * @param outcome    counter to be incremented (succeeded, failed or skipped)
+   * @param finishedAt current time, stored once the last uri of the job has been recorded
+   */
+  private void record(AtomicInteger outcome, long finishedAt) {
+    outcome.incrementAndGet();
+    if (isFinished()) {
+      this.finishedAt = finishedAt;
+      finishedLatch.countDown();
+    }
+  }
+
+  /**
+   * wait until every uri of the job has been processed.
+   *
+   * @return false when the timeout elapsed before the job finished
+   */
+  public boolean awaitFinished(long timeout, TimeUnit unit) throws InterruptedException {
+    return finishedLatch.await(timeout, unit);
+  }
+
+  public void recordSucceeded(long now) {
+    record(succeeded, now);
+  }
+
+  public void recordFailed(long now) {
+    record(failed, now);
+  }
+
+  public void recordSkipped(long now) {
+    record(skipped, now);
+  }
+}
@@ -0,0 +1,33 @@
+package com.company.file.model;
+
+import com.company.file.enums.DownloadOrderEnum;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * option of one downloadBulk invocation.
+ * - downloadOrder : order in which uri are handed to the workers, NONE keeps the set order without probing the size
+ * - sizeHintMap   : known size in bytes per uri string, uri without hint is probed when an order is requested
+ *                   (or when the disk space admission control is enabled)
+ * - additionalDownloadLocationList : other locations (e.g. on other disks) the files are spread over, together with downloadLocation
+ */
+@Value
+@AllArgsConstructor
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class DownloadOption {
+  int numberOfRetry;
+  String downloadLocation;
+  TransferDeadline transferDeadline;
+  DownloadOrderEnum downloadOrder;
+  Map<String, Long> sizeHintMap;
+  List<String> additionalDownloadLocationList;
+
+  public static DownloadOption of(int numberOfRetry, String downloadLocation) {
+    return new DownloadOption(numberOfRetry, downloadLocation, TransferDeadline.NONE, DownloadOrderEnum.NONE, Map.of(), List.of());
+  }
+}
@@ -0,0 +1,31 @@
+package com.company.file.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * deadlines of one uri transfer, 0 means no deadline.
+ * - totalTimeoutMillis : maximum time for the uri, including all retry attempts
+ * - stallTimeoutMillis : maximum time without receiving any byte within one attempt
+ */
+@Value
+@AllArgsConstructor
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class TransferDeadline {
+  public static final TransferDeadline NONE = new TransferDeadline(0, 0);
+
+  long totalTimeoutMillis;
+  long stallTimeoutMillis;
+
+  public static TransferDeadline ofSeconds(long totalTimeoutSeconds, long stallTimeoutSeconds) {
+    return new TransferDeadline(TimeUnit.SECONDS.toMillis(totalTimeoutSeconds), TimeUnit.SECONDS.toMillis(stallTimeoutSeconds));
+  }
+
+  public boolean hasDeadline() {
+    return totalTimeoutMillis > 0 || stallTimeoutMillis > 0;
+  }
+}
@@ -0,0 +1,22 @@
+package com.company.file.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * content of uri-list.json.
+ * - uriSet      : every uri of the list
+ * - sizeHintMap : size in bytes of the uri whose entry gives one, used instead of probing the size
+ */
+@Value
+@AllArgsConstructor
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class UriList {
+  Set<String> uriSet;
+  Map<String, Long> sizeHintMap;
+}
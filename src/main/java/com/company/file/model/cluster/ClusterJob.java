@@ -0,0 +1,41 @@
+package com.company.file.model.cluster;
+
+import com.company.file.enums.DownloadOrderEnum;
+import com.company.file.enums.ShardKeyEnum;
+import com.company.file.model.DownloadOption;
+import com.company.file.model.TransferDeadline;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * a cluster job as persisted in the cluster store : the download option and the shards holding its uri.
+ * written once by the coordinator, the progress of each shard is kept next to it (see {@link com.company.file.cluster.ClusterStore}).
+ */
+@Value
+@AllArgsConstructor
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class ClusterJob {
+  String jobId;
+  long createdAt;
+  ShardKeyEnum shardKey;
+  int numberOfRetry;
+  String downloadLocation;
+  long transferTimeoutMillis;
+  long stallTimeoutMillis;
+  DownloadOrderEnum downloadOrder;
+  List<Integer> shardIds;
+
+  /**
+   * @param sizeHintMap size in bytes of the claimed uri which have one
+   * @return option used by each worker to download its share of the job
+   */
+  public DownloadOption toDownloadOption(Map<String, Long> sizeHintMap) {
+    return new DownloadOption(numberOfRetry, downloadLocation, new TransferDeadline(transferTimeoutMillis, stallTimeoutMillis),
+        downloadOrder, sizeHintMap, List.of());
+  }
+}
@@ -0,0 +1,27 @@
+package com.company.file.model.cluster;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * progress of a cluster job across every worker.
+ */
+@Value
+@AllArgsConstructor
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class ClusterJobView {
+  String jobId;
+  int totalUri;
+  int pendingCount;
+  int leasedCount;
+  int succeededCount;
+  int failedCount;
+  Map<String, Integer> finishedCountByWorker;
+  Set<String> liveWorkers;
+  boolean finished;
+}
@@ -0,0 +1,18 @@
+package com.company.file.model.cluster;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+
+/**
+ * lease of a shard : only its holder claims and records the uri of the shard.
+ * - leaseExpiresAt : the shard can be taken over by another worker after this time
+ */
+@Value
+@AllArgsConstructor
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class ClusterShardLease {
+  String workerId;
+  long leaseExpiresAt;
+}
@@ -0,0 +1,20 @@
+package com.company.file.model.cluster;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * outcome of a shard whose uri are all succeeded or failed, written once so the progress does not need its event log anymore.
+ */
+@Value
+@AllArgsConstructor
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class ClusterShardSummary {
+  int succeededCount;
+  int failedCount;
+  Map<String, Integer> finishedCountByWorker;
+}
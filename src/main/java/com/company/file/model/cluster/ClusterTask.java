@@ -0,0 +1,18 @@
+package com.company.file.model.cluster;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+
+/**
+ * one uri of a cluster job, as listed in its shard.
+ * - size : size in bytes given when the job was submitted, null when unknown
+ */
+@Value
+@AllArgsConstructor
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class ClusterTask {
+  String uri;
+  Long size;
+}
@@ -0,0 +1,22 @@
+package com.company.file.model.cluster;
+
+import com.company.file.enums.ClusterTaskStatusEnum;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+
+/**
+ * one line of the event log of a shard : the uri moved to status by worker.
+ * - LEASED    : the worker has started the uri
+ * - SUCCEEDED / FAILED : the uri is finished
+ * - PENDING   : the worker has handed the uri back without downloading it
+ */
+@Value
+@AllArgsConstructor
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class ClusterTaskEvent {
+  ClusterTaskStatusEnum status;
+  String workerId;
+  String uri;
+}
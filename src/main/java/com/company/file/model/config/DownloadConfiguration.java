@@ -1,10 +1,14 @@
 package com.company.file.model.config;
 
+import com.company.file.enums.DownloadOrderEnum;
+import com.company.file.enums.ShardKeyEnum;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 import lombok.Value;
 
+import java.util.List;
+
 @Value
 @AllArgsConstructor
 @NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
@@ -12,4 +16,14 @@ public class DownloadConfiguration {
   String downloadLocation;
   int numberOfRetry;
   int corePoolSize;
+  // null -> default port, 0 -> any free port
+  Integer daemonPort;
+  long transferTimeoutSeconds;
+  long stallTimeoutSeconds;
+  DownloadOrderEnum downloadOrder;
+  String clusterStoreLocation;
+  String clusterWorkerId;
+  ShardKeyEnum clusterShardKey;
+  long minFreeSpaceBytes;
+  List<String> additionalDownloadLocations;
 }
@@ -0,0 +1,80 @@
+package com.company.file.model.config;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * configuration of the s3 downloader, read from environment variables when discovered through ServiceLoader :
+ * - S3_ENDPOINT           : endpoint of the s3-compatible store, e.g. http://localhost:9000 (default https://s3.{region}.amazonaws.com)
+ * - S3_REGION             : region used to sign the request (default AWS_REGION, then us-east-1)
+ * - AWS_ACCESS_KEY_ID     : access key, the request is sent unsigned when it is empty
+ * - AWS_SECRET_ACCESS_KEY : secret key
+ * - S3_PART_SIZE_BYTES    : size of each ranged GET (default 8 MiB), smaller object is downloaded with a single GET
+ * - S3_PARALLELISM        : number of ranged GET of one object running at the same time (default 4)
+ * objects are always addressed path-style ({endpoint}/{bucket}/{key}).
+ */
+@Value
+@AllArgsConstructor
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class S3Configuration {
+  private static final String DEFAULT_REGION = "us-east-1";
+  private static final long DEFAULT_PART_SIZE_BYTES = 8L * 1024 * 1024;
+  private static final int DEFAULT_PARALLELISM = 4;
+
+  String endpoint;
+  String region;
+  String accessKey;
+  String secretKey;
+  long partSizeBytes;
+  int parallelism;
+
+  public static S3Configuration fromEnvironment() {
+    return fromEnvironment(System.getenv());
+  }
+
+  /**
+   * @param environment environment variables
+   * @throws IllegalArgumentException when S3_PART_SIZE_BYTES or S3_PARALLELISM is not a positive number
+   */
+  public static S3Configuration fromEnvironment(Map<String, String> environment) {
+    String region = getEnv(environment, "S3_REGION", getEnv(environment, "AWS_REGION", DEFAULT_REGION));
+    return new S3Configuration(
+        getEnv(environment, "S3_ENDPOINT", "https://s3." + region + ".amazonaws.com"),
+        region,
+        getEnv(environment, "AWS_ACCESS_KEY_ID", null),
+        getEnv(environment, "AWS_SECRET_ACCESS_KEY", null),
+        getPositiveLongEnv(environment, "S3_PART_SIZE_BYTES", DEFAULT_PART_SIZE_BYTES),
+        (int) Math.min(Integer.MAX_VALUE, getPositiveLongEnv(environment, "S3_PARALLELISM", DEFAULT_PARALLELISM))
+    );
+  }
+
+  public boolean hasCredentials() {
+    return accessKey != null && !accessKey.isEmpty();
+  }
+
+  private static String getEnv(Map<String, String> environment, String name, String defaultValue) {
+    String value = environment.get(name);
+    return value != null && !value.isEmpty() ? value : defaultValue;
+  }
+
+  private static long getPositiveLongEnv(Map<String, String> environment, String name, long defaultValue) {
+    String value = getEnv(environment, name, null);
+    if (value == null) {
+      return defaultValue;
+    }
+    long parsed;
+    try {
+      parsed = Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("environment variable " + name + " must be a positive whole number, got : " + value, e);
+    }
+    if (parsed <= 0) {
+      throw new IllegalArgumentException("environment variable " + name + " must be a positive whole number, got : " + value);
+    }
+    return parsed;
+  }
+}
@@ -0,0 +1,24 @@
+package com.company.file.model.request;
+
+import com.company.file.enums.DownloadOrderEnum;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+
+import java.util.List;
+import java.util.Map;
+
+@Value
+@AllArgsConstructor
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class SubmitJobRequest {
+  List<String> uris;
+  Integer numberOfRetry;
+  String downloadLocation;
+  Long transferTimeoutSeconds;
+  Long stallTimeoutSeconds;
+  DownloadOrderEnum downloadOrder;
+  Map<String, Long> sizeHints;
+  List<String> additionalDownloadLocations;
+}
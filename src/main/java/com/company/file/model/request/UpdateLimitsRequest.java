@@ -0,0 +1,13 @@
+package com.company.file.model.request;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+
+@Value
+@AllArgsConstructor
+@NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
+public class UpdateLimitsRequest {
+  Integer corePoolSize;
+}
@@ -0,0 +1,173 @@
+package com.company.file.service;
+
+import com.company.file.downloader.TransferContext;
+import com.company.file.exception.InsufficientDiskSpaceException;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * choose the download location of each transfer and reserve its expected size against the free space of the location file store.
+ * - disabled (minFreeSpaceBytes <= 0) : no check, the locations are used round-robin
+ * - enabled : the location with the most available space is chosen,
+ *   available = usable space - bytes reserved and not written yet by the running transfers - minFreeSpaceBytes.
+ *   since every running transfer holds a reservation, concurrent transfers are spread over the locations (and their disks).
+ * a transfer with unknown size reserves nothing but still needs available space.
+ * a transfer which does not fit only waits while another transfer holds a reservation on its locations, otherwise it fails.
+ */
+public class DiskSpaceAllocator {
+  public static final DiskSpaceAllocator DISABLED = new DiskSpaceAllocator(0);
+
+  private final long minFreeSpaceBytes;
+  private final FileStoreResolver fileStoreResolver;
+  // resolving the file store reads the mount table, so it is done once per location
+  private final Map<String, FileStore> fileStoreRegistry = new ConcurrentHashMap<>();
+  private final List<Reservation> reservationList = new ArrayList<>();
+  private final AtomicLong roundRobinSequence = new AtomicLong();
+
+  /**
+   * @param minFreeSpaceBytes free space always kept on each file store, 0 disables the admission control
+   */
+  public DiskSpaceAllocator(long minFreeSpaceBytes) {
+    this(minFreeSpaceBytes, downloadLocation -> Files.getFileStore(Paths.get(downloadLocation)));
+  }
+
+  /**
+   * @param minFreeSpaceBytes free space always kept on each file store, 0 disables the admission control
+   * @param fileStoreResolver resolve the file store of a download location
+   */
+  DiskSpaceAllocator(long minFreeSpaceBytes, FileStoreResolver fileStoreResolver) {
+    this.minFreeSpaceBytes = minFreeSpaceBytes;
+    this.fileStoreResolver = fileStoreResolver;
+  }
+
+  public boolean isEnabled() {
+    return minFreeSpaceBytes > 0;
+  }
+
+  /**
+   * @param downloadLocationList candidate locations, at least one
+   * @param expectedBytes        expected size of the file, UNKNOWN_SIZE (negative) when unknown
+   * @param transferContext      transfer context, its progress is deducted from the reservation
+   * @return the reservation holding the chosen location, or null when no location has enough space right now
+   *         but a running transfer holds a reservation on one of them (its end may free space)
+   * @throws InsufficientDiskSpaceException when the file is larger than every file store,
+   *                                        or does not fit now and no running transfer holds a reservation on the locations
+   */
+  public Reservation allocate(List<String> downloadLocationList, long expectedBytes, TransferContext transferContext) throws IOException {
+    final long reservedBytes = Math.max(0, expectedBytes);
+    if (!isEnabled()) {
+      final int index = (int) (roundRobinSequence.getAndIncrement() % downloadLocationList.size());
+      return new Reservation(downloadLocationList.get(index), null, 0, transferContext);
+    }
+
+    synchronized (reservationList) {
+      String bestDownloadLocation = null;
+      FileStore bestFileStore = null;
+      long bestAvailableBytes = Long.MIN_VALUE;
+      boolean fitsAnyFileStore = false;
+      for (String downloadLocation : downloadLocationList) {
+        FileStore fileStore = fileStoreOf(downloadLocation);
+        fitsAnyFileStore |= fileStore.getTotalSpace() - minFreeSpaceBytes >= reservedBytes;
+        final long availableBytes = fileStore.getUsableSpace() - reservedBytesOf(fileStore) - minFreeSpaceBytes;
+        if (availableBytes > bestAvailableBytes) {
+          bestDownloadLocation = downloadLocation;
+          bestFileStore = fileStore;
+          bestAvailableBytes = availableBytes;
+        }
+      }
+      if (!fitsAnyFileStore) {
+        throw new InsufficientDiskSpaceException("expected size : " + reservedBytes + " bytes is larger than the space of every location : "
+            + downloadLocationList);
+      }
+      if (bestAvailableBytes <= 0 || bestAvailableBytes < reservedBytes) {
+        if (!isAnyReserved(downloadLocationList)) {
+          // no running transfer of this service will finish and free space, waiting would never end
+          throw new InsufficientDiskSpaceException("expected size : " + reservedBytes + " bytes does not fit in any location : "
+              + downloadLocationList + " and no running transfer holds space on them");
+        }
+        return null;
+      }
+      Reservation reservation = new Reservation(bestDownloadLocation, bestFileStore, reservedBytes, transferContext);
+      reservationList.add(reservation);
+      return reservation;
+    }
+  }
+
+  public void release(Reservation reservation) {
+    if (reservation.fileStore == null) {
+      return;
+    }
+    synchronized (reservationList) {
+      reservationList.remove(reservation);
+    }
+  }
+
+  private boolean isAnyReserved(List<String> downloadLocationList) throws IOException {
+    for (String downloadLocation : downloadLocationList) {
+      FileStore fileStore = fileStoreOf(downloadLocation);
+      for (Reservation reservation : reservationList) {
+        if (reservation.fileStore.equals(fileStore)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private long reservedBytesOf(FileStore fileStore) {
+    long reservedBytes = 0;
+    for (Reservation reservation : reservationList) {
+      if (reservation.fileStore.equals(fileStore)) {
+        reservedBytes += reservation.getRemainingBytes();
+      }
+    }
+    return reservedBytes;
+  }
+
+  private FileStore fileStoreOf(String downloadLocation) throws IOException {
+    FileStore fileStore = fileStoreRegistry.get(downloadLocation);
+    if (fileStore == null) {
+      fileStore = fileStoreResolver.resolve(downloadLocation);
+      fileStoreRegistry.put(downloadLocation, fileStore);
+    }
+    return fileStore;
+  }
+
+  interface FileStoreResolver {
+    FileStore resolve(String downloadLocation) throws IOException;
+  }
+
+  /**
+   * space reserved for one transfer, released once the transfer is finished.
+   */
+  public static class Reservation {
+    @Getter
+    private final String downloadLocation;
+    private final FileStore fileStore;
+    private final long reservedBytes;
+    private final TransferContext transferContext;
+
+    private Reservation(String downloadLocation, FileStore fileStore, long reservedBytes, TransferContext transferContext) {
+      this.downloadLocation = downloadLocation;
+      this.fileStore = fileStore;
+      this.reservedBytes = reservedBytes;
+      this.transferContext = transferContext;
+    }
+
+    /**
+     * the bytes already written are counted by the file store usable space, only the rest is still reserved.
+     */
+    long getRemainingBytes() {
+      return Math.max(0, reservedBytes - transferContext.getTransferredBytes());
+    }
+  }
+}
@@ -1,44 +1,95 @@
 package com.company.file.service;
 
-import com.company.file.constant.SupportedProtocolConstant;
+import com.company.file.cluster.ClusterCoordinator;
+import com.company.file.cluster.ClusterStore;
+import com.company.file.cluster.ClusterWorker;
 import com.company.file.downloader.FileDownloader;
-import com.company.file.downloader.impl.FtpFileDownloader;
-import com.company.file.downloader.impl.HttpFileDownloader;
-import com.company.file.downloader.impl.SftpFileDownloader;
+import com.company.file.downloader.FileDownloaderRegistry;
+import com.company.file.downloader.TransferContext;
+import com.company.file.daemon.FileDownloaderDaemon;
+import com.company.file.enums.DownloadOrderEnum;
+import com.company.file.enums.FileDownloaderCapabilityEnum;
+import com.company.file.enums.ShardKeyEnum;
+import com.company.file.enums.TransferAbortReasonEnum;
+import com.company.file.enums.TransferOutcomeEnum;
 import com.company.file.model.DownloadBulkResult;
+import com.company.file.model.DownloadJob;
+import com.company.file.model.DownloadOption;
+import com.company.file.model.TransferDeadline;
+import com.company.file.model.cluster.ClusterJobView;
 import com.company.file.model.config.DownloadConfiguration;
 import com.company.file.model.URIPreValidationResult;
+import com.company.file.model.UriList;
+import com.company.file.util.CollectionUtil;
+import com.company.file.util.DigestUtil;
+import com.company.file.util.UriListUtil;
 import com.company.file.validator.URIPreValidator;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.time.Clock;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.Executors;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
-public class FileDownloaderService {
+public class FileDownloaderService implements AutoCloseable {
   private static final int INITIAL_ATTEMPT = 1;
+  private static final String DAEMON_ARGUMENT = "--daemon";
+  private static final String WORKER_ARGUMENT = "--worker";
+  private static final String COORDINATOR_ARGUMENT = "--coordinator";
+  private static final long CLUSTER_JOB_VIEW_INTERVAL_MILLIS = 2000;
+  private static final int LOG_SAMPLE_SIZE = 10;
+  private static final int PROGRESS_LOG_INTERVAL = 1000;
+  private static final int SHA_256_HEX_LENGTH = 64;
+  private static final long DISK_SPACE_RECHECK_MILLIS = 5000;
 
   private final Clock clock;
   private final Map<String, FileDownloader> fileDownloaderProtocolRegistry;
   private final ScheduledExecutorService scheduledExecutorService;
+  private final Map<String, DownloadJob> downloadJobRegistry = new ConcurrentHashMap<>();
+  private final Map<String, TransferListener> transferListenerRegistry = new ConcurrentHashMap<>();
+  private final AtomicLong jobSequence = new AtomicLong();
+  private final TransferWatchdog transferWatchdog = new TransferWatchdog();
+  private final DiskSpaceAllocator diskSpaceAllocator;
+  // uri which did not get enough disk space, submitted again on the next recheck
+  private final Queue<AwaitingTransfer> awaitingDiskSpaceQueue = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean diskSpaceRecheckScheduled = new AtomicBoolean();
 
   public FileDownloaderService(Clock clock,
                                Map<String, FileDownloader> fileDownloaderProtocolRegistry,
                                ScheduledExecutorService scheduledExecutorService) {
+    this(clock, fileDownloaderProtocolRegistry, scheduledExecutorService, DiskSpaceAllocator.DISABLED);
+  }
+
+  public FileDownloaderService(Clock clock,
+                               Map<String, FileDownloader> fileDownloaderProtocolRegistry,
+                               ScheduledExecutorService scheduledExecutorService,
+                               DiskSpaceAllocator diskSpaceAllocator) {
     this.clock = clock;
     this.fileDownloaderProtocolRegistry = fileDownloaderProtocolRegistry;
     this.scheduledExecutorService = scheduledExecutorService;
+    this.diskSpaceAllocator = diskSpaceAllocator;
   }
 
   /**
@@ -51,36 +102,407 @@ public class FileDownloaderService {
    *    - download all given uri parallel (based on given corePoolSize) and will be run in the background
    * 4. as mentioned in #3 download process will be run in the background, so user can check the pre-validation result first.
    * 5. to check whether the download process is success or not, need to check further to log
+   *    or query the progress by the returned job id (see {@link #getDownloadJob(String)})
    *
    * @param uriStringSet     set of uri given by user
    * @param numberOfRetry    how many attempt to download
    * @param downloadLocation where download location will be
-   * @return DownloadBulkResult, current use to let user know whether the pre-validation is success or not
+   * @return DownloadBulkResult, current use to let user know whether the pre-validation is success or not and the job id
    */
   public DownloadBulkResult downloadBulk(Set<String> uriStringSet, int numberOfRetry, String downloadLocation) {
-    final String identifier = clock.millis() + "downloadLocation";
-    log.info("method downloadList start with identifier : {}, total uri : {}, uriStringSet : {}, numberOfRetry : {}, downloadPath : {}",
-        identifier, uriStringSet.size(), uriStringSet, numberOfRetry, downloadLocation);
+    return downloadBulk(uriStringSet, DownloadOption.of(numberOfRetry, downloadLocation));
+  }
+
+  /**
+   * same as {@link #downloadBulk(Set, int, String)} with the deadline and ordering given in downloadOption.
+   *
+   * @param uriStringSet   set of uri given by user
+   * @param downloadOption number of retry, download location, transfer deadline and download order
+   * @return DownloadBulkResult, current use to let user know whether the pre-validation is success or not and the job id
+   */
+  public DownloadBulkResult downloadBulk(Set<String> uriStringSet, DownloadOption downloadOption) {
+    return downloadBulk(uriStringSet, downloadOption, null);
+  }
 
-    URIPreValidationResult uriPreValidationResult = URIPreValidator.initialise(uriStringSet)
+  /**
+   * same as {@link #downloadBulk(Set, DownloadOption)}, transferListener is notified of the outcome of each uri.
+   *
+   * @param uriStringSet     set of uri given by user
+   * @param downloadOption   number of retry, download location, transfer deadline and download order
+   * @param transferListener listener of each uri outcome, can be null
+   * @return DownloadBulkResult, current use to let user know whether the pre-validation is success or not and the job id
+   */
+  public DownloadBulkResult downloadBulk(Set<String> uriStringSet, DownloadOption downloadOption, TransferListener transferListener) {
+    final String identifier = clock.millis() + "-" + jobSequence.incrementAndGet();
+    final String downloadLocation = downloadOption.getDownloadLocation();
+    // the uri set can hold millions of uri, only a sample is logged at info
+    log.info("method downloadList start with identifier : {}, total uri : {}, sampleUri : {}, numberOfRetry : {}, downloadPath : {}, " +
+            "downloadOrder : {}", identifier, uriStringSet.size(), CollectionUtil.sample(uriStringSet, LOG_SAMPLE_SIZE),
+        downloadOption.getNumberOfRetry(), downloadLocation, downloadOption.getDownloadOrder());
+    log.debug("method downloadList with identifier : {}, uriStringSet : {}", identifier, uriStringSet);
+
+    URIPreValidationResult uriPreValidationResult = URIPreValidator.initialise(uriStringSet, fileDownloaderProtocolRegistry.keySet())
         .validateAll()
         .getUriPreValidationResult();
     Set<URI> uriValidSet = uriPreValidationResult.getUriValidSet();
-    log.info("method downloadList check validation result with identifier : {}, total validUri : {}, uriPreValidationResult : {}",
-        identifier, uriValidSet.size(), uriPreValidationResult);
+    log.info("method downloadList check validation result with identifier : {}, total validUri : {}, total invalidSyntaxUri : {}, " +
+            "total invalidProtocolUri : {}", identifier, uriValidSet.size(), uriPreValidationResult.getInvalidSyntaxURISet().size(),
+        uriPreValidationResult.getInvalidProtocolURISet().size());
+    log.debug("method downloadList with identifier : {}, uriPreValidationResult : {}", identifier, uriPreValidationResult);
 
     if (!uriPreValidationResult.isAllUriValid()) {
       return DownloadBulkResult.preValidationFailed(uriPreValidationResult);
     }
 
-    makeDirectoryIfNotExist(downloadLocation);
+    DownloadJob downloadJob = new DownloadJob(identifier, uriValidSet.size(), clock.millis(), downloadOption);
+    downloadJob.getDownloadLocationList().forEach(this::makeDirectoryIfNotExist);
+    downloadJobRegistry.put(identifier, downloadJob);
+    if (transferListener != null && !downloadJob.isFinished()) {
+      transferListenerRegistry.put(identifier, transferListener);
+    }
+
+    dispatch(downloadJob, uriValidSet, downloadOption.getSizeHintMap());
 
-    uriValidSet.forEach(uri -> scheduledExecutorService.execute(() -> {
-      String outputPath = generateOutputPath(downloadLocation, uri);
-      downloadWithRetry(uri, outputPath, numberOfRetry, INITIAL_ATTEMPT, identifier);
+    return DownloadBulkResult.preValidationSuccess(identifier);
+  }
+
+  /**
+   * hand the uri of the job to the workers.
+   * without download order they are submitted right away. otherwise the size of uri without hint is probed first
+   * (in parallel on the workers) and the last finished probe submits every uri in the requested order :
+   * - LARGEST_FIRST  : longest-processing-time-first, minimise the time until the whole batch is finished
+   * - SMALLEST_FIRST : minimise the time until the first results are available
+   * uri with unknown size is treated as the largest one.
+   *
+   * @param downloadJob  job
+   * @param uriValidSet  valid uri of the job
+   * @param sizeHintMap  known size in bytes per uri string, can be null
+   */
+  private void dispatch(DownloadJob downloadJob, Set<URI> uriValidSet, Map<String, Long> sizeHintMap) {
+    List<URI> uriToProbeList = new ArrayList<>();
+    for (URI uri : uriValidSet) {
+      Long sizeHint = sizeHintMap != null ? sizeHintMap.get(uri.toString()) : null;
+      if (sizeHint != null) {
+        downloadJob.putExpectedSize(uri, sizeHint);
+      } else {
+        uriToProbeList.add(uri);
+      }
+    }
+    if (downloadJob.getDownloadOrder() == DownloadOrderEnum.NONE) {
+      uriValidSet.forEach(uri -> submitTransfer(downloadJob, uri));
+      return;
+    }
+    if (uriToProbeList.isEmpty()) {
+      submitOrdered(downloadJob, uriValidSet);
+      return;
+    }
+
+    AtomicInteger remainingProbe = new AtomicInteger(uriToProbeList.size());
+    uriToProbeList.forEach(uri -> scheduledExecutorService.execute(() -> {
+      try {
+        if (!downloadJob.isCancelled()) {
+          downloadJob.putExpectedSize(uri, probeSize(uri, downloadJob.getJobId()));
+        }
+      } finally {
+        if (remainingProbe.decrementAndGet() == 0) {
+          submitOrdered(downloadJob, uriValidSet);
+        }
+      }
     }));
+  }
+
+  private void submitOrdered(DownloadJob downloadJob, Set<URI> uriValidSet) {
+    Comparator<URI> bySize = Comparator.comparingLong(uri -> {
+      long expectedSize = downloadJob.expectedSizeOf(uri);
+      return expectedSize == FileDownloader.UNKNOWN_SIZE ? Long.MAX_VALUE : expectedSize;
+    });
+    List<URI> orderedUriList = new ArrayList<>(uriValidSet);
+    orderedUriList.sort(downloadJob.getDownloadOrder() == DownloadOrderEnum.LARGEST_FIRST ? bySize.reversed() : bySize);
+    log.info("method submitOrdered submit with identifier : {}, downloadOrder : {}, total uri : {}", downloadJob.getJobId(),
+        downloadJob.getDownloadOrder(), orderedUriList.size());
+    orderedUriList.forEach(uri -> submitTransfer(downloadJob, uri));
+  }
+
+  private long probeSize(URI uri, String identifier) {
+    FileDownloader fileDownloaderProtocol = fileDownloaderProtocolRegistry.get(uri.getScheme().toLowerCase());
+    if (fileDownloaderProtocol == null || !fileDownloaderProtocol.getCapabilities().contains(FileDownloaderCapabilityEnum.SIZE_PROBE)) {
+      return FileDownloader.UNKNOWN_SIZE;
+    }
+    try {
+      return fileDownloaderProtocol.probeSize(uri);
+    } catch (Exception e) {
+      log.warn("method probeSize failed for identifier : {}, uri : {}, error : {}", identifier, uri, e.toString());
+      return FileDownloader.UNKNOWN_SIZE;
+    }
+  }
+
+  private void submitTransfer(DownloadJob downloadJob, URI uri) {
+    scheduledExecutorService.execute(() -> runTransfer(downloadJob, uri));
+  }
+
+  /**
+   * run one uri of the job.
+   * 1. cancelled job -> uri is skipped
+   * 2. paused job -> uri is parked, so the worker is released right away
+   * 3. otherwise get a download location with enough free space for its expected size (see {@link DiskSpaceAllocator}),
+   *    uri without enough space waits (without holding the worker) and is submitted again when space may have been freed.
+   * 4. download it, the transfer can be aborted by cancel, pause or the deadline watchdog.
+   *    uri aborted by pause is parked and will be downloaded again on resume.
+   */
+  private void runTransfer(DownloadJob downloadJob, URI uri) {
+    if (downloadJob.isCancelled()) {
+      recordOutcome(downloadJob, uri, TransferOutcomeEnum.SKIPPED);
+      return;
+    }
+    if (downloadJob.isPaused()) {
+      parkTransfer(downloadJob, uri);
+      return;
+    }
+
+    final long expectedSize = expectedSizeOf(downloadJob, uri);
+    TransferContext transferContext = new TransferContext(downloadJob.getTransferDeadline(), clock, expectedSize);
+    DiskSpaceAllocator.Reservation reservation;
+    try {
+      reservation = diskSpaceAllocator.allocate(downloadJob.getDownloadLocationList(), expectedSize, transferContext);
+    } catch (IOException e) {
+      log.error("method runTransfer disk space allocation error for identifier : {}, uri : {}, error : {}", downloadJob.getJobId(), uri,
+          e.toString());
+      recordOutcome(downloadJob, uri, TransferOutcomeEnum.FAILED);
+      return;
+    }
+    if (reservation == null) {
+      awaitDiskSpace(downloadJob, uri);
+      return;
+    }
+
+    String outputPath = generateOutputPath(reservation.getDownloadLocation(), uri);
+    downloadJob.addActiveTransfer(transferContext);
+    transferWatchdog.register(transferContext);
+    boolean success;
+    try {
+      success = downloadWithRetry(uri, outputPath, downloadJob.getNumberOfRetry(), INITIAL_ATTEMPT, downloadJob.getJobId(), transferContext);
+    } finally {
+      transferWatchdog.unregister(transferContext);
+      downloadJob.removeActiveTransfer(transferContext);
+      diskSpaceAllocator.release(reservation);
+    }
+    if (!success) {
+      // the partial file has been removed, its space may let an awaiting uri start
+      releaseAwaitingTransfers();
+    }
+
+    if (success) {
+      recordOutcome(downloadJob, uri, TransferOutcomeEnum.SUCCEEDED);
+    } else if (transferContext.getAbortReason() == TransferAbortReasonEnum.PAUSED) {
+      parkTransfer(downloadJob, uri);
+    } else if (transferContext.getAbortReason() == TransferAbortReasonEnum.CANCELLED) {
+      recordOutcome(downloadJob, uri, TransferOutcomeEnum.SKIPPED);
+    } else {
+      recordOutcome(downloadJob, uri, TransferOutcomeEnum.FAILED);
+    }
+  }
+
+  /**
+   * @return expected size of the uri for the disk space reservation, probed once when the admission control is enabled and the uri
+   *         has no hint. a probe without result is recorded too, so a uri awaiting disk space is not probed again on every recheck.
+   */
+  private long expectedSizeOf(DownloadJob downloadJob, URI uri) {
+    if (!downloadJob.hasExpectedSize(uri) && diskSpaceAllocator.isEnabled()) {
+      downloadJob.putExpectedSize(uri, probeSize(uri, downloadJob.getJobId()));
+    }
+    return downloadJob.expectedSizeOf(uri);
+  }
+
+  private void awaitDiskSpace(DownloadJob downloadJob, URI uri) {
+    downloadJob.awaitDiskSpace();
+    awaitingDiskSpaceQueue.add(new AwaitingTransfer(downloadJob, uri));
+    if (diskSpaceRecheckScheduled.compareAndSet(false, true)) {
+      log.warn("method awaitDiskSpace not enough disk space, uri are waiting for identifier : {}, total awaiting : {}",
+          downloadJob.getJobId(), awaitingDiskSpaceQueue.size());
+      scheduledExecutorService.schedule(() -> {
+        diskSpaceRecheckScheduled.set(false);
+        releaseAwaitingTransfers();
+      }, DISK_SPACE_RECHECK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * submit every uri waiting for disk space again, the ones which still do not fit are queued again.
+   */
+  private void releaseAwaitingTransfers() {
+    AwaitingTransfer awaitingTransfer;
+    while ((awaitingTransfer = awaitingDiskSpaceQueue.poll()) != null) {
+      awaitingTransfer.downloadJob.stopAwaitingDiskSpace();
+      submitTransfer(awaitingTransfer.downloadJob, awaitingTransfer.uri);
+    }
+  }
+
+  private void recordOutcome(DownloadJob downloadJob, URI uri, TransferOutcomeEnum transferOutcome) {
+    // looked up before the outcome is counted : the listener is removed once the last outcome is counted,
+    // which then happens after the lookup of every other outcome
+    final TransferListener transferListener = transferListenerRegistry.get(downloadJob.getJobId());
+    final long now = clock.millis();
+    if (transferOutcome == TransferOutcomeEnum.SUCCEEDED) {
+      downloadJob.recordSucceeded(now);
+    } else if (transferOutcome == TransferOutcomeEnum.FAILED) {
+      downloadJob.recordFailed(now);
+    } else {
+      downloadJob.recordSkipped(now);
+    }
+    logProgress(downloadJob);
+
+    if (transferListener == null) {
+      return;
+    }
+    try {
+      transferListener.onTransferFinished(uri, transferOutcome);
+    } catch (Exception e) {
+      log.error("method recordOutcome transferListener error for identifier : {}, uri : {}", downloadJob.getJobId(), uri, e);
+    }
+    if (downloadJob.isFinished()) {
+      transferListenerRegistry.remove(downloadJob.getJobId());
+    }
+  }
+
+  /**
+   * one progress line every PROGRESS_LOG_INTERVAL finished uri and one when the job is finished,
+   * instead of one info line per uri.
+   */
+  private void logProgress(DownloadJob downloadJob) {
+    final int finishedCount = downloadJob.getFinishedCount();
+    if (finishedCount % PROGRESS_LOG_INTERVAL != 0 && finishedCount != downloadJob.getTotalUri()) {
+      return;
+    }
+    log.info("method recordOutcome progress with identifier : {}, finished : {}/{}, succeeded : {}, failed : {}, skipped : {}",
+        downloadJob.getJobId(), finishedCount, downloadJob.getTotalUri(), downloadJob.getSucceededCount(), downloadJob.getFailedCount(),
+        downloadJob.getSkippedCount());
+  }
+
+  private void parkTransfer(DownloadJob downloadJob, URI uri) {
+    downloadJob.park(uri);
+    // the job may have been resumed or cancelled while the uri was being parked
+    releaseParkedTransfers(downloadJob);
+  }
+
+  /**
+   * hand the parked uri back : skipped when the job has been cancelled, submitted again when the job is no longer paused.
+   */
+  private void releaseParkedTransfers(DownloadJob downloadJob) {
+    if (!downloadJob.isCancelled() && downloadJob.isPaused()) {
+      return;
+    }
+    URI uri;
+    while ((uri = downloadJob.pollParkedUri()) != null) {
+      if (downloadJob.isCancelled()) {
+        recordOutcome(downloadJob, uri, TransferOutcomeEnum.SKIPPED);
+      } else {
+        submitTransfer(downloadJob, uri);
+      }
+    }
+  }
+
+  /**
+   * get the progress of a job submitted through downloadBulk.
+   *
+   * @param jobId job id returned in DownloadBulkResult
+   * @return DownloadJob, or null when the job is unknown or has already been purged
+   */
+  public DownloadJob getDownloadJob(String jobId) {
+    return downloadJobRegistry.get(jobId);
+  }
 
-    return DownloadBulkResult.preValidationSuccess();
+  /**
+   * cancel a job. uri which has not been started yet will be skipped, uri which is being downloaded is aborted
+   * (its connection is closed and the partial file removed).
+   *
+   * @param jobId job id returned in DownloadBulkResult
+   * @return false when the job is unknown
+   */
+  public boolean cancelDownloadJob(String jobId) {
+    DownloadJob downloadJob = downloadJobRegistry.get(jobId);
+    if (downloadJob == null) {
+      return false;
+    }
+    downloadJob.cancel();
+    releaseParkedTransfers(downloadJob);
+    // uri waiting for disk space are skipped right away instead of on the next recheck
+    releaseAwaitingTransfers();
+    log.info("method cancelDownloadJob cancel requested for identifier : {}", jobId);
+    return true;
+  }
+
+  /**
+   * pause a job. uri which is being downloaded is aborted and, like uri which has not been started yet,
+   * parked without holding a worker until the job is resumed.
+   *
+   * @param jobId job id returned in DownloadBulkResult
+   * @return false when the job is unknown or already cancelled
+   */
+  public boolean pauseDownloadJob(String jobId) {
+    DownloadJob downloadJob = downloadJobRegistry.get(jobId);
+    if (downloadJob == null || downloadJob.isCancelled()) {
+      return false;
+    }
+    downloadJob.pause();
+    log.info("method pauseDownloadJob pause requested for identifier : {}", jobId);
+    return true;
+  }
+
+  /**
+   * resume a paused job, parked uri are submitted again.
+   *
+   * @param jobId job id returned in DownloadBulkResult
+   * @return false when the job is unknown or already cancelled
+   */
+  public boolean resumeDownloadJob(String jobId) {
+    DownloadJob downloadJob = downloadJobRegistry.get(jobId);
+    if (downloadJob == null || downloadJob.isCancelled()) {
+      return false;
+    }
+    downloadJob.resume();
+    releaseParkedTransfers(downloadJob);
+    log.info("method resumeDownloadJob resume requested for identifier : {}", jobId);
+    return true;
+  }
+
+  /**
+   * @return capabilities of each registered scheme
+   */
+  public Map<String, Set<FileDownloaderCapabilityEnum>> getSupportedProtocols() {
+    Map<String, Set<FileDownloaderCapabilityEnum>> supportedProtocolMap = new TreeMap<>();
+    fileDownloaderProtocolRegistry.forEach((scheme, fileDownloader) -> supportedProtocolMap.put(scheme, fileDownloader.getCapabilities()));
+    return supportedProtocolMap;
+  }
+
+  /**
+   * remove finished jobs from the registry so a long-running process does not keep every job forever.
+   *
+   * @param retentionMillis how long a finished job is kept after its last uri has been processed
+   */
+  public void purgeFinishedDownloadJobs(long retentionMillis) {
+    final long threshold = clock.millis() - retentionMillis;
+    downloadJobRegistry.values().removeIf(downloadJob -> downloadJob.isFinished() && downloadJob.getFinishedAt() < threshold);
+  }
+
+  /**
+   * remove a job from the registry once its caller does not need its progress anymore, e.g. a cluster worker
+   * which has recorded the outcome of every uri in the cluster store.
+   *
+   * @param jobId job id returned in DownloadBulkResult
+   * @return false when the job is still running, true when it has been removed or is unknown
+   */
+  public boolean removeFinishedDownloadJob(String jobId) {
+    DownloadJob downloadJob = downloadJobRegistry.get(jobId);
+    return downloadJob == null || (downloadJob.isFinished() && downloadJobRegistry.remove(jobId, downloadJob));
+  }
+
+  /**
+   * stop the transfer watchdog thread of this service.
+   * the executor given in the constructor belongs to the caller, it is not shut down here.
+   */
+  @Override
+  public void close() {
+    transferWatchdog.shutdown();
   }
 
   private void makeDirectoryIfNotExist(String downloadLocation) {
@@ -100,37 +522,52 @@ public class FileDownloaderService {
    * 2. make sure the service is not null -> means the protocol is already registered
    * 3. call download to suitable service
    * 5. if there is error when call download
-   * it will trigger retry mechanism until the download process is success or number of attempt has reached max
+   * it will trigger retry mechanism until the download process is success or number of attempt has reached max.
+   * transfer aborted by cancel, pause or total deadline is not retried, stalled transfer is.
    *
-   * @param uri           uri object
-   * @param outputPath    where the downloaded file will be put
-   * @param numberOfRetry how many attempt to download
-   * @param attempt       current attempt
-   * @param identifier    this will be used to indicate the download is triggered by which process.
+   * @param uri             uri object
+   * @param outputPath      where the downloaded file will be put
+   * @param numberOfRetry   how many attempt to download
+   * @param attempt         current attempt
+   * @param identifier      this will be used to indicate the download is triggered by which process.
+   * @param transferContext transfer context of the uri, shared by all attempts
+   * @return true when the file has been downloaded
    */
-  void downloadWithRetry(URI uri, String outputPath, int numberOfRetry, int attempt, String identifier) {
-    log.info("method downloadWithRetry start with identifier : {}, outputPath : {}, uri : {}, attempt : {}/{}", identifier, outputPath, uri, attempt,
+  boolean downloadWithRetry(URI uri, String outputPath, int numberOfRetry, int attempt, String identifier, TransferContext transferContext) {
+    log.debug("method downloadWithRetry start with identifier : {}, outputPath : {}, uri : {}, attempt : {}/{}", identifier, outputPath, uri, attempt,
         numberOfRetry);
     FileDownloader fileDownloaderProtocol = fileDownloaderProtocolRegistry.get(uri.getScheme().toLowerCase());
     if (fileDownloaderProtocol == null) {
       log.warn("method downloadWithRetry fileDownloaderProtocol is null, indicate protocol not supported yet " +
           "for identifier : {}, outputPath : {}, uri : {}, attempt : {}/{}", identifier, outputPath, uri, attempt, numberOfRetry);
-      return;
+      return false;
     }
 
     try {
-      fileDownloaderProtocol.download(uri, outputPath);
-      log.info("method downloadWithRetry download success for identifier : {}, outputhPath : {}, uri : {}, attempt : {}/{}", identifier, outputPath,
+      transferContext.beginAttempt();
+      fileDownloaderProtocol.download(uri, outputPath, transferContext);
+      log.debug("method downloadWithRetry download success for identifier : {}, outputhPath : {}, uri : {}, attempt : {}/{}", identifier, outputPath,
           uri, attempt, numberOfRetry);
+      return true;
     } catch (Exception e) {
       log.error("method downloadWithRetry download error for identifier : {}, outputPath : {}, uri : {}, attempt : {}/{}", identifier, outputPath,
           uri, attempt, numberOfRetry, e);
-      if (attempt < numberOfRetry) {
-        downloadWithRetry(uri, outputPath, numberOfRetry, attempt + 1, identifier);
+      if (attempt < numberOfRetry && transferContext.isRetryable() && !isStopRequested(identifier)) {
+        return downloadWithRetry(uri, outputPath, numberOfRetry, attempt + 1, identifier, transferContext);
       }
+      return false;
     }
   }
 
+  /**
+   * @return true when the job has been cancelled or paused, its failed attempt is then not retried even if the attempt itself is
+   *         retryable
+   */
+  private boolean isStopRequested(String jobId) {
+    DownloadJob downloadJob = downloadJobRegistry.get(jobId);
+    return downloadJob != null && (downloadJob.isCancelled() || downloadJob.isPaused());
+  }
+
   /**
    * generate output path for the file.
    * the output will be : {downloadLocation}/{uniquePrefix}-{filename}
@@ -141,38 +578,41 @@ public class FileDownloaderService {
    */
   String generateOutputPath(String downloadLocation, URI uri) {
     final String path = uri.getPath();
-    String filename = path.substring(path.lastIndexOf('/') + 1);
-    return downloadLocation + "/" + generateFilenameUniquePrefix(uri) + "-" + filename;
+    final int lastSlashIndex = path.lastIndexOf('/');
+    return new StringBuilder(downloadLocation.length() + SHA_256_HEX_LENGTH + path.length() - lastSlashIndex + 1)
+        .append(downloadLocation)
+        .append('/')
+        .append(generateFilenameUniquePrefix(uri, path, lastSlashIndex))
+        .append('-')
+        .append(path, lastSlashIndex + 1, path.length())
+        .toString();
   }
 
   /**
    * will be generated from protocol used, uri hostname, and path without its filename.
+   * called for every uri, so the digest of the thread is reused (see {@link DigestUtil}).
    *
-   * @param uri uri
-   * @return String the unique prefix
+   * @param uri            uri
+   * @param path           path of the uri
+   * @param lastSlashIndex index of the last '/' of the path
+   * @return String the unique prefix, sha-256 hex of {scheme}{host}{pathWithoutFilename}
    */
-  private static String generateFilenameUniquePrefix(URI uri) {
-    String path = uri.getPath();
-    String pathWithoutFilename = path.substring(0, path.lastIndexOf('/'));
-    String input = uri.getScheme() + uri.getHost() + pathWithoutFilename;
-    // Create MessageDigest instance for SHA-256
-    MessageDigest md;
-    try {
-      md = MessageDigest.getInstance("SHA-256");
-    } catch (NoSuchAlgorithmException e) {
-      //should not happen
-      return null;
-    }
-    // Add input data bytes to digest
-    md.update(input.getBytes());
-    // Get the hash's bytes
-    byte[] bytes = md.digest();
-    // Convert byte array to a string representation
-    StringBuilder sb = new StringBuilder();
-    for (byte b : bytes) {
-      sb.append(String.format("%02x", b));
+  private static char[] generateFilenameUniquePrefix(URI uri, String path, int lastSlashIndex) {
+    MessageDigest messageDigest = DigestUtil.sha256Digest();
+    messageDigest.update(uri.getScheme().getBytes(StandardCharsets.UTF_8));
+    messageDigest.update(String.valueOf(uri.getHost()).getBytes(StandardCharsets.UTF_8));
+    messageDigest.update(path.substring(0, lastSlashIndex).getBytes(StandardCharsets.UTF_8));
+    return DigestUtil.toHex(messageDigest.digest());
+  }
+
+  private static class AwaitingTransfer {
+    private final DownloadJob downloadJob;
+    private final URI uri;
+
+    private AwaitingTransfer(DownloadJob downloadJob, URI uri) {
+      this.downloadJob = downloadJob;
+      this.uri = uri;
     }
-    return sb.toString();
   }
 
   public static void main(String[] args) {
@@ -187,12 +627,27 @@ public class FileDownloaderService {
           "example : /Users/chandra/uri-list.json /Users/chandra/configuration.json");
       return;
     }
+    if (DAEMON_ARGUMENT.equals(args[0])) {
+      startDaemon(objectMapper, args[1]);
+      return;
+    }
+    if (WORKER_ARGUMENT.equals(args[0])) {
+      startClusterWorker(objectMapper, args[1]);
+      return;
+    }
+    if (COORDINATOR_ARGUMENT.equals(args[0])) {
+      if (args.length < 3) {
+        log.info("need to input 2 file path after --coordinator : uri-list.json and configuration.json");
+        return;
+      }
+      runClusterCoordinator(objectMapper, args[1], args[2]);
+      return;
+    }
 
-    Set<String> uriSet;
+    UriList uriList;
     DownloadConfiguration downloadConfiguration;
     try {
-      uriSet = new HashSet<>(objectMapper.readValue(new File(args[0]), new TypeReference<List<String>>() {
-      }));
+      uriList = UriListUtil.read(objectMapper, new File(args[0]));
       downloadConfiguration = objectMapper.readValue(new File(args[1]), new TypeReference<>() {
       });
     } catch (Exception e) {
@@ -200,23 +655,170 @@ public class FileDownloaderService {
       return;
     }
 
-    FileDownloader httpFileDownloader = new HttpFileDownloader();
+    ScheduledThreadPoolExecutor scheduledExecutorService = new ScheduledThreadPoolExecutor(downloadConfiguration.getCorePoolSize());
+    FileDownloaderService fileDownloaderService = new FileDownloaderService(
+        Clock.systemUTC(),
+        FileDownloaderRegistry.load(),
+        scheduledExecutorService,
+        new DiskSpaceAllocator(downloadConfiguration.getMinFreeSpaceBytes()));
+
+    DownloadBulkResult downloadBulkResult = fileDownloaderService.downloadBulk(uriList.getUriSet(), new DownloadOption(
+        downloadConfiguration.getNumberOfRetry(),
+        downloadConfiguration.getDownloadLocation(),
+        TransferDeadline.ofSeconds(downloadConfiguration.getTransferTimeoutSeconds(), downloadConfiguration.getStallTimeoutSeconds()),
+        downloadConfiguration.getDownloadOrder(),
+        uriList.getSizeHintMap(),
+        downloadConfiguration.getAdditionalDownloadLocations()));
+    // uri can be submitted later than downloadBulk returns (after the size probe), so wait for the job before shutting down
+    if (downloadBulkResult.getJobId() != null) {
+      try {
+        fileDownloaderService.getDownloadJob(downloadBulkResult.getJobId()).awaitFinished(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    scheduledExecutorService.shutdown();
+    fileDownloaderService.close();
+  }
+
+  /**
+   * start the long-running daemon : one warm FileDownloaderService and protocol registry serving jobs through the http control api.
+   *
+   * @param configurationPath path to configuration.json
+   */
+  private static void startDaemon(ObjectMapper objectMapper, String configurationPath) {
+    DownloadConfiguration downloadConfiguration;
+    try {
+      downloadConfiguration = objectMapper.readValue(new File(configurationPath), new TypeReference<>() {
+      });
+    } catch (Exception e) {
+      log.error("error when trying to get configuration", e);
+      return;
+    }
+
+    ScheduledThreadPoolExecutor scheduledExecutorService = new ScheduledThreadPoolExecutor(downloadConfiguration.getCorePoolSize());
+    FileDownloaderService fileDownloaderService = new FileDownloaderService(
+        Clock.systemUTC(),
+        FileDownloaderRegistry.load(),
+        scheduledExecutorService,
+        new DiskSpaceAllocator(downloadConfiguration.getMinFreeSpaceBytes()));
 
-    Map<String, FileDownloader> fileDownloaderProtocolRegistry = Map.of(
-        SupportedProtocolConstant.HTTPS_PROTOCOL, httpFileDownloader,
-        SupportedProtocolConstant.HTTP_PROTOCOL, httpFileDownloader,
-        SupportedProtocolConstant.FTP_PROTOCOL, new FtpFileDownloader(),
-        SupportedProtocolConstant.SFTP_PROTOCOL, new SftpFileDownloader()
-    );
+    FileDownloaderDaemon fileDownloaderDaemon = new FileDownloaderDaemon(
+        fileDownloaderService,
+        scheduledExecutorService,
+        downloadConfiguration,
+        objectMapper);
+    try {
+      fileDownloaderDaemon.start();
+    } catch (Exception e) {
+      log.error("error when trying to start daemon", e);
+      scheduledExecutorService.shutdownNow();
+      fileDownloaderService.close();
+      return;
+    }
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      fileDownloaderDaemon.stop();
+      scheduledExecutorService.shutdownNow();
+      fileDownloaderService.close();
+    }));
+  }
 
-    ScheduledExecutorService scheduledExecutorService = Executors.newScheduledThreadPool(downloadConfiguration.getCorePoolSize());
+  /**
+   * start a cluster worker : claims its share of the jobs found in clusterStoreLocation and downloads them until the process is stopped.
+   *
+   * @param configurationPath path to configuration.json
+   */
+  private static void startClusterWorker(ObjectMapper objectMapper, String configurationPath) {
+    DownloadConfiguration downloadConfiguration;
+    ClusterStore clusterStore;
+    try {
+      downloadConfiguration = objectMapper.readValue(new File(configurationPath), new TypeReference<>() {
+      });
+      clusterStore = new ClusterStore(Paths.get(downloadConfiguration.getClusterStoreLocation()), objectMapper);
+    } catch (Exception e) {
+      log.error("error when trying to get configuration and cluster store", e);
+      return;
+    }
+
+    ScheduledThreadPoolExecutor scheduledExecutorService = new ScheduledThreadPoolExecutor(downloadConfiguration.getCorePoolSize());
     FileDownloaderService fileDownloaderService = new FileDownloaderService(
         Clock.systemUTC(),
-        fileDownloaderProtocolRegistry,
-        scheduledExecutorService);
+        FileDownloaderRegistry.load(),
+        scheduledExecutorService,
+        new DiskSpaceAllocator(downloadConfiguration.getMinFreeSpaceBytes()));
+    final String workerId = downloadConfiguration.getClusterWorkerId() != null
+        ? downloadConfiguration.getClusterWorkerId()
+        : defaultWorkerId();
 
-    fileDownloaderService.downloadBulk(uriSet, downloadConfiguration.getNumberOfRetry(), downloadConfiguration.getDownloadLocation());
-    scheduledExecutorService.shutdown();
+    // twice the pool size, so the worker always has the next uri queued without hoarding the job
+    ClusterWorker clusterWorker = new ClusterWorker(
+        workerId,
+        clusterStore,
+        fileDownloaderService,
+        downloadConfiguration.getCorePoolSize() * 2,
+        ClusterWorker.DEFAULT_POLL_INTERVAL_MILLIS,
+        ClusterWorker.DEFAULT_WORKER_TIMEOUT_MILLIS,
+        ClusterWorker.DEFAULT_LEASE_MILLIS,
+        Clock.systemUTC());
+    clusterWorker.start();
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      clusterWorker.stop();
+      scheduledExecutorService.shutdownNow();
+      fileDownloaderService.close();
+    }));
+  }
+
+  /**
+   * submit the uri list to the cluster found in clusterStoreLocation and log the progress until every uri is finished.
+   *
+   * @param uriListPath       path to uri-list.json
+   * @param configurationPath path to configuration.json
+   */
+  private static void runClusterCoordinator(ObjectMapper objectMapper, String uriListPath, String configurationPath) {
+    try {
+      UriList uriList = UriListUtil.read(objectMapper, new File(uriListPath));
+      DownloadConfiguration downloadConfiguration = objectMapper.readValue(new File(configurationPath), new TypeReference<>() {
+      });
+      ClusterCoordinator clusterCoordinator = new ClusterCoordinator(
+          new ClusterStore(Paths.get(downloadConfiguration.getClusterStoreLocation()), objectMapper),
+          FileDownloaderRegistry.load().keySet(),
+          ClusterWorker.DEFAULT_WORKER_TIMEOUT_MILLIS,
+          Clock.systemUTC());
+
+      DownloadBulkResult downloadBulkResult = clusterCoordinator.submit(uriList.getUriSet(), new DownloadOption(
+              downloadConfiguration.getNumberOfRetry(),
+              downloadConfiguration.getDownloadLocation(),
+              TransferDeadline.ofSeconds(downloadConfiguration.getTransferTimeoutSeconds(), downloadConfiguration.getStallTimeoutSeconds()),
+              downloadConfiguration.getDownloadOrder(),
+              uriList.getSizeHintMap(),
+              List.of()),
+          downloadConfiguration.getClusterShardKey() != null ? downloadConfiguration.getClusterShardKey() : ShardKeyEnum.HOST);
+      if (downloadBulkResult.getJobId() == null) {
+        log.info("method runClusterCoordinator pre-validation failed, uriPreValidationResult : {}", downloadBulkResult.getUriPreValidationResult());
+        return;
+      }
+
+      ClusterJobView clusterJobView;
+      do {
+        Thread.sleep(CLUSTER_JOB_VIEW_INTERVAL_MILLIS);
+        clusterJobView = clusterCoordinator.getClusterJobView(downloadBulkResult.getJobId());
+        log.info("method runClusterCoordinator progress : {}", objectMapper.writeValueAsString(clusterJobView));
+      } while (!clusterJobView.isFinished());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      log.error("error when trying to run cluster coordinator", e);
+    }
+  }
+
+  private static String defaultWorkerId() {
+    String hostname;
+    try {
+      hostname = InetAddress.getLocalHost().getHostName();
+    } catch (Exception e) {
+      hostname = "localhost";
+    }
+    return hostname + "-" + ProcessHandle.current().pid();
   }
 
 }
@@ -0,0 +1,12 @@
+package com.company.file.service;
+
+import com.company.file.enums.TransferOutcomeEnum;
+
+import java.net.URI;
+
+/**
+ * notified from the worker thread once a uri of the job has been processed, so it must not block.
+ */
+public interface TransferListener {
+  void onTransferFinished(URI uri, TransferOutcomeEnum transferOutcome);
+}
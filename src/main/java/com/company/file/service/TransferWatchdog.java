@@ -0,0 +1,64 @@
+package com.company.file.service;
+
+import com.company.file.downloader.TransferContext;
+import com.company.file.enums.TransferAbortReasonEnum;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * abort transfers which exceed their deadline.
+ * it runs on its own daemon thread : when every worker is blocked on a hung transfer, a check scheduled on the worker pool would never run.
+ */
+@Slf4j
+class TransferWatchdog {
+  private static final long CHECK_INTERVAL_MILLIS = 500;
+
+  private final Set<TransferContext> transferContextSet = ConcurrentHashMap.newKeySet();
+  private final ScheduledExecutorService watchdogExecutorService;
+
+  TransferWatchdog() {
+    this.watchdogExecutorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "transfer-watchdog");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.watchdogExecutorService.scheduleWithFixedDelay(this::checkAll, CHECK_INTERVAL_MILLIS, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  void register(TransferContext transferContext) {
+    if (transferContext.hasDeadline()) {
+      transferContextSet.add(transferContext);
+    }
+  }
+
+  void unregister(TransferContext transferContext) {
+    transferContextSet.remove(transferContext);
+  }
+
+  /**
+   * stop the watchdog thread, the registered transfers are no longer checked.
+   */
+  void shutdown() {
+    watchdogExecutorService.shutdownNow();
+    transferContextSet.clear();
+  }
+
+  private void checkAll() {
+    for (TransferContext transferContext : transferContextSet) {
+      try {
+        TransferAbortReasonEnum reason = transferContext.checkDeadline();
+        if (reason != null && !transferContext.isAborted()) {
+          log.warn("method checkAll abort transfer with reason : {}, transferredBytes : {}", reason, transferContext.getTransferredBytes());
+          transferContext.abort(reason);
+        }
+      } catch (Exception e) {
+        log.error("method checkAll error when checking transfer deadline", e);
+      }
+    }
+  }
+}
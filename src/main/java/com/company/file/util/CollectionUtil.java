@@ -1,9 +1,26 @@
 package com.company.file.util;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 
 public class CollectionUtil {
   public static boolean isEmpty(Collection<?> coll) {
     return coll == null || coll.isEmpty();
   }
+
+  /**
+   * @param coll  collection
+   * @param limit maximum size of the sample
+   * @return the first limit elements of the collection (iteration order), e.g. to log a large collection
+   */
+  public static <T> List<T> sample(Collection<T> coll, int limit) {
+    List<T> sampleList = new ArrayList<>(Math.min(coll.size(), limit));
+    Iterator<T> iterator = coll.iterator();
+    while (sampleList.size() < limit && iterator.hasNext()) {
+      sampleList.add(iterator.next());
+    }
+    return sampleList;
+  }
 }
@@ -0,0 +1,61 @@
+package com.company.file.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public class DigestUtil {
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+  // MessageDigest.getInstance looks the provider up on every call, one digest is kept per thread instead
+  private static final ThreadLocal<MessageDigest> SHA_256_DIGEST = ThreadLocal.withInitial(() -> {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      //should not happen, every jvm has SHA-256
+      throw new IllegalStateException(e);
+    }
+  });
+
+  /**
+   * @return sha-256 digest of the current thread, ready to be updated. digest() resets it for the next use,
+   *         it must not be handed to another thread.
+   */
+  public static MessageDigest sha256Digest() {
+    MessageDigest messageDigest = SHA_256_DIGEST.get();
+    messageDigest.reset();
+    return messageDigest;
+  }
+
+  public static byte[] sha256(byte[] input) {
+    return sha256Digest().digest(input);
+  }
+
+  public static byte[] sha256(String input) {
+    return sha256(input.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @param bytes bytes to encode
+   * @return lowercase hex of the bytes, 2 chars per byte
+   */
+  public static char[] toHex(byte[] bytes) {
+    char[] chars = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+      chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+    }
+    return chars;
+  }
+
+  public static String toHexString(byte[] bytes) {
+    return new String(toHex(bytes));
+  }
+
+  /**
+   * @param value value whose lowest 4 bits are encoded
+   * @return lowercase hex digit
+   */
+  public static char hexDigit(int value) {
+    return HEX[value & 0xf];
+  }
+}
@@ -1,8 +1,11 @@
 package com.company.file.util;
 
+import com.company.file.downloader.TransferContext;
+
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
@@ -11,23 +14,43 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 
 public class FileDownloaderUtil {
+  private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+  // a network read returns a few KiB at most (8 KiB through Channels.newChannel), they are gathered here and written in one call,
+  // one buffer is kept per thread instead of allocating 1 MiB per file
+  private static final ThreadLocal<ByteBuffer> WRITE_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocate(WRITE_BUFFER_SIZE));
+
   /**
    * save file.
    * notes :
-   * 1. when it fails to fully download the file, it will remove the file
+   * 1. the reads are gathered in a 1 MiB buffer written to the file in one call, the transfer context is checked between reads
+   *    and every read is reported as progress
+   * 2. when it fails to fully download the file (including when the transfer is aborted), it will remove the file and rethrow the error
    * @param inputStream input stream
    * @param outputPath where the file is going to be saved
+   * @param transferContext transfer context of the current uri
    */
-  public static void saveFile(InputStream inputStream, String outputPath) {
+  public static void saveFile(InputStream inputStream, String outputPath, TransferContext transferContext) throws IOException {
     ReadableByteChannel readableByteChannel = null;
     FileOutputStream fileOutputStream = null;
     FileChannel fileChannel = null;
     try {
-      readableByteChannel = Channels.newChannel(inputStream);
+      transferContext.onAbort(inputStream);
+      readableByteChannel = new ProgressReportingChannel(Channels.newChannel(inputStream), transferContext);
       fileOutputStream = new FileOutputStream(outputPath);
       fileChannel = fileOutputStream.getChannel();
-      fileChannel.transferFrom(readableByteChannel, 0, Long.MAX_VALUE);
-    } catch (Exception e) {
+      ByteBuffer writeBuffer = WRITE_BUFFER.get();
+      boolean endOfStream;
+      do {
+        writeBuffer.clear();
+        endOfStream = fill(readableByteChannel, writeBuffer, transferContext);
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+          fileChannel.write(writeBuffer);
+        }
+      } while (!endOfStream);
+      // a connection closed by abort can look like a normal end of stream
+      transferContext.checkNotAborted();
+    } catch (IOException e) {
       if (fileOutputStream != null) {
         // close output stream resource and delete created file
         try {
@@ -39,6 +62,7 @@ public class FileDownloaderUtil {
           Files.deleteIfExists(path);
         } catch (Exception ignored) {}
       }
+      throw e;
     } finally {
       //close all resources
       if (fileOutputStream != null) {
@@ -63,4 +87,80 @@ public class FileDownloaderUtil {
       }
     }
   }
+
+  /**
+   * save one range of a file, used by downloader reading ranges in parallel into the same file.
+   * the reads are gathered in a 1 MiB buffer written at its offset in one call.
+   * the caller is responsible to remove the file when any range fails.
+   * @param inputStream input stream of the range
+   * @param fileChannel channel of the output file, shared by all ranges
+   * @param position offset of the range in the file
+   * @param length length of the range
+   * @param transferContext transfer context of the current uri
+   */
+  public static void saveRange(InputStream inputStream, FileChannel fileChannel, long position, long length,
+                               TransferContext transferContext) throws IOException {
+    transferContext.onAbort(inputStream);
+    try (ReadableByteChannel readableByteChannel = new ProgressReportingChannel(Channels.newChannel(inputStream), transferContext)) {
+      ByteBuffer writeBuffer = WRITE_BUFFER.get();
+      long written = 0;
+      while (written < length) {
+        writeBuffer.clear();
+        writeBuffer.limit((int) Math.min(WRITE_BUFFER_SIZE, length - written));
+        if (fill(readableByteChannel, writeBuffer, transferContext)) {
+          throw new IOException("unexpected end of stream at position : " + (position + written + writeBuffer.position()));
+        }
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+          written += fileChannel.write(writeBuffer, position + written);
+        }
+      }
+    }
+  }
+
+  /**
+   * read until the buffer is full or the stream has ended.
+   * @return true when the stream has ended
+   */
+  private static boolean fill(ReadableByteChannel readableByteChannel, ByteBuffer buffer, TransferContext transferContext) throws IOException {
+    while (buffer.hasRemaining()) {
+      transferContext.checkNotAborted();
+      if (readableByteChannel.read(buffer) < 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * report every read to the transfer context, so a slow but alive transfer is not seen as stalled.
+   */
+  private static class ProgressReportingChannel implements ReadableByteChannel {
+    private final ReadableByteChannel delegate;
+    private final TransferContext transferContext;
+
+    private ProgressReportingChannel(ReadableByteChannel delegate, TransferContext transferContext) {
+      this.delegate = delegate;
+      this.transferContext = transferContext;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+      int read = delegate.read(dst);
+      if (read > 0) {
+        transferContext.recordProgress(read);
+      }
+      return read;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return delegate.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+      delegate.close();
+    }
+  }
 }
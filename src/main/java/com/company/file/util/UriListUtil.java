@@ -0,0 +1,57 @@
+package com.company.file.util;
+
+import com.company.file.model.UriList;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class UriListUtil {
+  private static final String URI_FIELD = "uri";
+  private static final String SIZE_FIELD = "size";
+
+  /**
+   * read uri-list.json, a json array whose entries are either
+   * - the uri itself : "https://..."
+   * - an object with the uri and its optional size in bytes : {"uri" : "https://...", "size" : 1048576}
+   *
+   * @param objectMapper object mapper
+   * @param file         uri-list.json
+   * @return uri of the list and the size given for some of them
+   * @throws IOException when the file can not be read or one of the entries is invalid
+   */
+  public static UriList read(ObjectMapper objectMapper, File file) throws IOException {
+    JsonNode rootNode = objectMapper.readTree(file);
+    if (rootNode == null || !rootNode.isArray()) {
+      throw new IOException("uri list must be a json array : " + file);
+    }
+    Set<String> uriSet = new HashSet<>();
+    Map<String, Long> sizeHintMap = new HashMap<>();
+    for (int i = 0; i < rootNode.size(); i++) {
+      JsonNode entryNode = rootNode.get(i);
+      if (entryNode.isTextual()) {
+        uriSet.add(entryNode.asText());
+        continue;
+      }
+      JsonNode uriNode = entryNode.get(URI_FIELD);
+      if (!entryNode.isObject() || uriNode == null || !uriNode.isTextual()) {
+        throw new IOException("uri list entry at index " + i + " must be a uri or an object with a \"uri\" field : " + entryNode);
+      }
+      uriSet.add(uriNode.asText());
+      JsonNode sizeNode = entryNode.get(SIZE_FIELD);
+      if (sizeNode == null || sizeNode.isNull()) {
+        continue;
+      }
+      if (!sizeNode.canConvertToLong() || !sizeNode.isIntegralNumber() || sizeNode.asLong() < 0) {
+        throw new IOException("uri list entry at index " + i + " must have a size in bytes (0 or more) : " + entryNode);
+      }
+      sizeHintMap.put(uriNode.asText(), sizeNode.asLong());
+    }
+    return new UriList(uriSet, sizeHintMap);
+  }
+}
@@ -1,6 +1,5 @@
 package com.company.file.validator;
 
-import com.company.file.constant.SupportedProtocolConstant;
 import com.company.file.model.URIPreValidationResult;
 
 import java.net.URI;
@@ -10,6 +9,7 @@ import java.util.Set;
 
 public class URIPreValidator {
   private final Set<String> uriStringSet;
+  private final Set<String> supportedProtocolSet;
 
   private final Set<URI> uriValidSet;
 
@@ -18,16 +18,21 @@ public class URIPreValidator {
 
   private final URIPreValidationResult uriPreValidationResult;
 
-  private URIPreValidator(Set<String> uriStringSet) {
+  private URIPreValidator(Set<String> uriStringSet, Set<String> supportedProtocolSet) {
     this.uriStringSet = uriStringSet;
+    this.supportedProtocolSet = supportedProtocolSet;
     this.uriValidSet = new HashSet<>();
     this.invalidSyntaxURISet = new HashSet<>();
     this.invalidProtocolURISet = new HashSet<>();
     this.uriPreValidationResult = new URIPreValidationResult(uriValidSet, invalidSyntaxURISet, invalidProtocolURISet);
   }
 
-  public static URIPreValidator initialise(Set<String> uriStringSet) {
-    return new URIPreValidator(uriStringSet);
+  /**
+   * @param uriStringSet         set of uri given by user
+   * @param supportedProtocolSet lower case schemes of the registered downloaders
+   */
+  public static URIPreValidator initialise(Set<String> uriStringSet, Set<String> supportedProtocolSet) {
+    return new URIPreValidator(uriStringSet, supportedProtocolSet);
   }
 
   public URIPreValidator validateAll() {
@@ -62,7 +67,7 @@ public class URIPreValidator {
     }
 
     final String protocol = uri.getScheme().toLowerCase();
-    return SupportedProtocolConstant.ALL_SUPPORTED_PROTOCOLS.contains(protocol);
+    return supportedProtocolSet.contains(protocol);
   }
 
   public URIPreValidationResult getUriPreValidationResult() {
@@ -0,0 +1,148 @@
+package com.company.file.cluster;
+
+import com.company.file.downloader.FileDownloaderRegistry;
+import com.company.file.enums.ShardKeyEnum;
+import com.company.file.model.DownloadBulkResult;
+import com.company.file.model.DownloadOption;
+import com.company.file.model.cluster.ClusterJobView;
+import com.company.file.model.config.DownloadConfiguration;
+import com.company.file.service.FileDownloaderService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * two --worker processes sharing one store directory, downloading from a local http server.
+ */
+public class ClusterWorkerProcessTest {
+  private static final int TOTAL_URI = 40;
+  private static final long TIMEOUT_MILLIS = 60_000;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final List<Process> processList = new ArrayList<>();
+  private Path rootPath;
+  private HttpServer httpServer;
+  private ClusterStore clusterStore;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    rootPath = Files.createTempDirectory("cluster-process");
+    clusterStore = new ClusterStore(rootPath.resolve("store"), objectMapper);
+    httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    httpServer.createContext("/", exchange -> {
+      byte[] body = exchange.getRequestURI().getPath().getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream outputStream = exchange.getResponseBody()) {
+        outputStream.write(body);
+      }
+    });
+    httpServer.start();
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    // destroy lets the shutdown hook stop the worker, destroyForcibly is the fallback
+    processList.forEach(Process::destroy);
+    for (Process process : processList) {
+      if (!process.waitFor(10, TimeUnit.SECONDS)) {
+        process.destroyForcibly().waitFor();
+      }
+    }
+    httpServer.stop(0);
+    deleteRecursively(rootPath.toFile());
+  }
+
+  @Test
+  void testSubmit_TwoWorkerProcesses_JobSharedAndCompleted() throws Exception {
+    startWorkerProcess("worker-a");
+    startWorkerProcess("worker-b");
+    awaitLiveWorkers(Set.of("worker-a", "worker-b"));
+
+    Set<String> uriSet = new HashSet<>();
+    for (int i = 0; i < TOTAL_URI; i++) {
+      uriSet.add("http://127.0.0.1:" + httpServer.getAddress().getPort() + "/file-" + i + ".txt");
+    }
+    Path downloadPath = rootPath.resolve("downloads");
+    ClusterCoordinator clusterCoordinator = new ClusterCoordinator(clusterStore, FileDownloaderRegistry.load().keySet(),
+        ClusterWorker.DEFAULT_WORKER_TIMEOUT_MILLIS, Clock.systemUTC());
+    DownloadBulkResult downloadBulkResult = clusterCoordinator.submit(uriSet, DownloadOption.of(1, downloadPath.toString()),
+        ShardKeyEnum.URI);
+
+    final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    ClusterJobView clusterJobView = clusterCoordinator.getClusterJobView(downloadBulkResult.getJobId());
+    while (!clusterJobView.isFinished() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(200);
+      clusterJobView = clusterCoordinator.getClusterJobView(downloadBulkResult.getJobId());
+    }
+    assertTrue(clusterJobView.isFinished(), () -> "job not finished : " + workerLogs());
+    assertEquals(TOTAL_URI, clusterJobView.getSucceededCount());
+    assertEquals(Set.of("worker-a", "worker-b"), clusterJobView.getFinishedCountByWorker().keySet());
+    assertEquals(TOTAL_URI, clusterJobView.getFinishedCountByWorker().values().stream().mapToInt(Integer::intValue).sum());
+    File[] downloadedFiles = downloadPath.toFile().listFiles();
+    assertEquals(TOTAL_URI, downloadedFiles == null ? 0 : downloadedFiles.length);
+  }
+
+  private void startWorkerProcess(String workerId) throws Exception {
+    Path configurationPath = rootPath.resolve(workerId + ".json");
+    objectMapper.writeValue(configurationPath.toFile(), new DownloadConfiguration(rootPath.resolve("downloads").toString(), 1, 2,
+        null, 0, 0, null, rootPath.resolve("store").toString(), workerId, null, 0, null));
+    Process process = new ProcessBuilder(
+        Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+        "-cp", System.getProperty("java.class.path"),
+        FileDownloaderService.class.getName(),
+        "--worker", configurationPath.toString())
+        .redirectErrorStream(true)
+        .redirectOutput(rootPath.resolve(workerId + ".log").toFile())
+        .start();
+    processList.add(process);
+  }
+
+  private void awaitLiveWorkers(Set<String> workerIdSet) throws Exception {
+    final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (!clusterStore.readHeartbeats().keySet().containsAll(workerIdSet) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(200);
+    }
+    assertTrue(clusterStore.readHeartbeats().keySet().containsAll(workerIdSet), () -> "workers not started : " + workerLogs());
+  }
+
+  private String workerLogs() {
+    StringBuilder sb = new StringBuilder();
+    for (String workerId : List.of("worker-a", "worker-b")) {
+      try {
+        sb.append('\n').append(workerId).append(" :\n").append(Files.readString(rootPath.resolve(workerId + ".log")));
+      } catch (Exception e) {
+        sb.append('\n').append(workerId).append(" : no log");
+      }
+    }
+    return sb.toString();
+  }
+
+  private static void deleteRecursively(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        deleteRecursively(child);
+      }
+    }
+    file.delete();
+  }
+}
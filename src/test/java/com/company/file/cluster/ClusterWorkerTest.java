@@ -0,0 +1,231 @@
+package com.company.file.cluster;
+
+import com.company.file.constant.SupportedProtocolConstant;
+import com.company.file.downloader.FileDownloader;
+import com.company.file.downloader.TransferContext;
+import com.company.file.enums.ClusterTaskStatusEnum;
+import com.company.file.enums.ShardKeyEnum;
+import com.company.file.model.DownloadBulkResult;
+import com.company.file.model.DownloadOption;
+import com.company.file.model.cluster.ClusterJob;
+import com.company.file.model.cluster.ClusterJobView;
+import com.company.file.model.cluster.ClusterTaskEvent;
+import com.company.file.service.FileDownloaderService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * several workers sharing one store in the same jvm, each with its own FileDownloaderService and a stub downloader.
+ */
+public class ClusterWorkerTest {
+  private static final long POLL_INTERVAL_MILLIS = 100;
+  private static final long WORKER_TIMEOUT_MILLIS = 1000;
+  private static final long LEASE_MILLIS = 2000;
+
+  private final List<ClusterWorker> clusterWorkerList = new ArrayList<>();
+  private final List<ExecutorService> executorServiceList = new ArrayList<>();
+  private final List<FileDownloaderService> fileDownloaderServiceList = new ArrayList<>();
+  // worker id -> host of the uri it has downloaded
+  private final Map<String, Set<String>> downloadedHostRegistry = new ConcurrentHashMap<>();
+  private Path storePath;
+  private ClusterStore clusterStore;
+  private ClusterCoordinator clusterCoordinator;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    storePath = Files.createTempDirectory("cluster-store");
+    clusterStore = new ClusterStore(storePath, new ObjectMapper());
+    clusterCoordinator = new ClusterCoordinator(clusterStore, Set.of(SupportedProtocolConstant.HTTPS_PROTOCOL), WORKER_TIMEOUT_MILLIS,
+        Clock.systemUTC());
+  }
+
+  @AfterEach
+  void tearDown() {
+    clusterWorkerList.forEach(ClusterWorker::stop);
+    executorServiceList.forEach(ExecutorService::shutdownNow);
+    fileDownloaderServiceList.forEach(FileDownloaderService::close);
+    deleteRecursively(storePath.toFile());
+  }
+
+  @Test
+  void testSubmit_ShardedByHostAcrossWorkers() throws Exception {
+    startWorker("worker-a");
+    startWorker("worker-b");
+    // both workers must be on the ring before the job is submitted
+    Thread.sleep(POLL_INTERVAL_MILLIS * 3);
+
+    Set<String> uriSet = new HashSet<>();
+    for (int host = 0; host < 8; host++) {
+      for (int file = 0; file < 3; file++) {
+        uriSet.add("https://host-" + host + ".example/file-" + file + ".txt");
+      }
+    }
+    DownloadBulkResult downloadBulkResult = clusterCoordinator.submit(uriSet, DownloadOption.of(1, downloadLocation()), ShardKeyEnum.HOST);
+
+    ClusterJobView clusterJobView = awaitFinished(downloadBulkResult.getJobId());
+    assertEquals(24, clusterJobView.getSucceededCount());
+    assertEquals(24, clusterJobView.getFinishedCountByWorker().values().stream().mapToInt(Integer::intValue).sum());
+    // every host is downloaded by a single worker
+    Set<String> hostSet = new HashSet<>();
+    downloadedHostRegistry.values().forEach(downloadedHostSet -> downloadedHostSet.forEach(host -> assertTrue(hostSet.add(host))));
+    assertEquals(8, hostSet.size());
+  }
+
+  @Test
+  void testSubmit_DeadWorkerLeaseReassigned() throws Exception {
+    Set<String> uriSet = Set.of("https://host.example/file-1.txt", "https://host.example/file-2.txt", "https://other.example/file-3.txt");
+    DownloadBulkResult downloadBulkResult = clusterCoordinator.submit(uriSet, DownloadOption.of(1, downloadLocation()), ShardKeyEnum.URI);
+
+    // a worker which leased every shard and started every uri then died : its lease is still valid but its heartbeat is too old
+    final long now = System.currentTimeMillis();
+    clusterStore.heartbeat("dead-worker", now - WORKER_TIMEOUT_MILLIS * 10);
+    ClusterJob clusterJob = clusterStore.readJob(downloadBulkResult.getJobId());
+    for (int shardId : clusterJob.getShardIds()) {
+      assertTrue(clusterStore.acquireShard(clusterJob.getJobId(), shardId, "dead-worker", now + 60_000, lease -> true));
+      assertTrue(clusterStore.appendEvents(clusterJob.getJobId(), shardId, "dead-worker",
+          leasedEvents(clusterJob.getJobId(), shardId, "dead-worker"), now + 60_000));
+    }
+    assertEquals(3, clusterCoordinator.getClusterJobView(clusterJob.getJobId()).getLeasedCount());
+    startWorker("worker-a");
+
+    ClusterJobView clusterJobView = awaitFinished(downloadBulkResult.getJobId());
+    assertEquals(3, clusterJobView.getSucceededCount());
+    assertEquals(Map.of("worker-a", 3), clusterJobView.getFinishedCountByWorker());
+    assertEquals(Set.of("worker-a"), clusterJobView.getLiveWorkers());
+  }
+
+  @Test
+  void testSubmit_StoreNotWritable_OutcomeKeptUntilAppended() throws Exception {
+    DownloadBulkResult downloadBulkResult = clusterCoordinator.submit(Set.of("https://host.example/file-1.txt"),
+        DownloadOption.of(1, downloadLocation()), ShardKeyEnum.URI);
+    final String jobId = downloadBulkResult.getJobId();
+    final int shardId = clusterStore.readJob(jobId).getShardIds().get(0);
+    CountDownLatch released = new CountDownLatch(1);
+    ClusterWorker clusterWorker = startWorker("worker-a", new FileDownloader() {
+      @Override
+      public Set<String> getSupportedSchemes() {
+        return Set.of(SupportedProtocolConstant.HTTPS_PROTOCOL);
+      }
+
+      @Override
+      public void download(URI uri, String outputPath, TransferContext transferContext) throws Exception {
+        released.await();
+      }
+    });
+    awaitLeased(jobId);
+
+    // the event log can not be appended while the uri finishes
+    Path eventLogPath = storePath.resolve("jobs").resolve(jobId).resolve("shards").resolve(String.valueOf(shardId)).resolve("events.log");
+    Path movedEventLogPath = eventLogPath.resolveSibling("events.log.moved");
+    Files.move(eventLogPath, movedEventLogPath);
+    Files.createDirectory(eventLogPath);
+    released.countDown();
+    Thread.sleep(POLL_INTERVAL_MILLIS * 5);
+    assertFalse(clusterStore.isJobFinished(jobId));
+
+    Files.delete(eventLogPath);
+    Files.move(movedEventLogPath, eventLogPath);
+    ClusterJobView clusterJobView = awaitFinished(jobId);
+    assertEquals(1, clusterJobView.getSucceededCount());
+    assertEquals(Map.of("worker-a", 1), clusterJobView.getFinishedCountByWorker());
+    // the local job is removed from the FileDownloaderService once its outcome is in the store
+    final long deadline = System.currentTimeMillis() + 10_000;
+    while (clusterWorker.getLocalJobCount() > 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(POLL_INTERVAL_MILLIS);
+    }
+    assertEquals(0, clusterWorker.getLocalJobCount());
+  }
+
+  private void startWorker(String workerId) {
+    startWorker(workerId, new FileDownloader() {
+      @Override
+      public Set<String> getSupportedSchemes() {
+        return Set.of(SupportedProtocolConstant.HTTPS_PROTOCOL);
+      }
+
+      @Override
+      public void download(URI uri, String outputPath, TransferContext transferContext) {
+        downloadedHostRegistry.computeIfAbsent(workerId, key -> ConcurrentHashMap.newKeySet()).add(uri.getHost());
+      }
+    });
+  }
+
+  private ClusterWorker startWorker(String workerId, FileDownloader fileDownloader) {
+    ScheduledExecutorService executorService = Executors.newScheduledThreadPool(2);
+    executorServiceList.add(executorService);
+    FileDownloaderService fileDownloaderService = new FileDownloaderService(
+        Clock.systemUTC(),
+        Map.of(SupportedProtocolConstant.HTTPS_PROTOCOL, fileDownloader),
+        executorService);
+    fileDownloaderServiceList.add(fileDownloaderService);
+    ClusterWorker clusterWorker = new ClusterWorker(workerId, clusterStore, fileDownloaderService, 4, POLL_INTERVAL_MILLIS,
+        WORKER_TIMEOUT_MILLIS, LEASE_MILLIS, Clock.systemUTC());
+    clusterWorkerList.add(clusterWorker);
+    clusterWorker.start();
+    return clusterWorker;
+  }
+
+  private List<ClusterTaskEvent> leasedEvents(String jobId, int shardId, String workerId) throws Exception {
+    List<ClusterTaskEvent> clusterTaskEventList = new ArrayList<>();
+    clusterStore.readTasks(jobId, shardId).forEach(clusterTask -> clusterTaskEventList.add(
+        new ClusterTaskEvent(ClusterTaskStatusEnum.LEASED, workerId, clusterTask.getUri())));
+    return clusterTaskEventList;
+  }
+
+  private void awaitLeased(String jobId) throws Exception {
+    final long deadline = System.currentTimeMillis() + 10_000;
+    while (clusterCoordinator.getClusterJobView(jobId).getLeasedCount() == 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(POLL_INTERVAL_MILLIS);
+    }
+    assertEquals(1, clusterCoordinator.getClusterJobView(jobId).getLeasedCount());
+  }
+
+  private ClusterJobView awaitFinished(String jobId) throws Exception {
+    final long deadline = System.currentTimeMillis() + 10_000;
+    ClusterJobView clusterJobView = clusterCoordinator.getClusterJobView(jobId);
+    while (!clusterJobView.isFinished() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(POLL_INTERVAL_MILLIS);
+      clusterJobView = clusterCoordinator.getClusterJobView(jobId);
+    }
+    assertNotNull(clusterJobView);
+    assertTrue(clusterJobView.isFinished());
+    return clusterJobView;
+  }
+
+  private String downloadLocation() {
+    return storePath.resolve("downloads").toString();
+  }
+
+  private static void deleteRecursively(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        deleteRecursively(child);
+      }
+    }
+    file.delete();
+  }
+}
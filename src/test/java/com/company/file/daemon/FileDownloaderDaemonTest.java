@@ -0,0 +1,190 @@
+package com.company.file.daemon;
+
+import com.company.file.constant.SupportedProtocolConstant;
+import com.company.file.downloader.FileDownloader;
+import com.company.file.downloader.TransferContext;
+import com.company.file.model.config.DownloadConfiguration;
+import com.company.file.service.FileDownloaderService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * http control api against a daemon started on a free port, with a stub downloader :
+ * uri whose path starts with /hang never finishes until its transfer is aborted, any other uri succeeds right away.
+ */
+public class FileDownloaderDaemonTest {
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final HttpClient httpClient = HttpClient.newHttpClient();
+  private Path downloadPath;
+  private ScheduledThreadPoolExecutor scheduledExecutorService;
+  private FileDownloaderService fileDownloaderService;
+  private FileDownloaderDaemon fileDownloaderDaemon;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    downloadPath = Files.createTempDirectory("daemon-test");
+    FileDownloader stubFileDownloader = new FileDownloader() {
+      @Override
+      public Set<String> getSupportedSchemes() {
+        return Set.of(SupportedProtocolConstant.HTTPS_PROTOCOL);
+      }
+
+      @Override
+      public void download(URI uri, String outputPath, TransferContext transferContext) throws Exception {
+        if (uri.getPath().startsWith("/hang")) {
+          CountDownLatch aborted = new CountDownLatch(1);
+          transferContext.onAbort(aborted::countDown);
+          aborted.await();
+          transferContext.checkNotAborted();
+        }
+      }
+    };
+    scheduledExecutorService = new ScheduledThreadPoolExecutor(2);
+    fileDownloaderService = new FileDownloaderService(
+        Clock.systemUTC(),
+        Map.of(SupportedProtocolConstant.HTTPS_PROTOCOL, stubFileDownloader),
+        scheduledExecutorService);
+    DownloadConfiguration downloadConfiguration = new DownloadConfiguration(downloadPath.toString(), 1, 2, 0, 0, 0, null,
+        null, null, null, 0, null);
+    fileDownloaderDaemon = new FileDownloaderDaemon(fileDownloaderService, scheduledExecutorService, downloadConfiguration, objectMapper);
+    fileDownloaderDaemon.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    fileDownloaderDaemon.stop();
+    scheduledExecutorService.shutdownNow();
+    fileDownloaderService.close();
+    File[] files = downloadPath.toFile().listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    downloadPath.toFile().delete();
+  }
+
+  @Test
+  void testSubmitJob_JobCompleted() throws Exception {
+    HttpResponse<String> response = send("POST", "/jobs", "{\"uris\" : [\"https://example/file-1.txt\", \"https://example/file-2.txt\"]}");
+    assertEquals(202, response.statusCode());
+    final String jobId = json(response).get("jobId").asText();
+
+    JsonNode downloadJob = awaitStatus(jobId, "COMPLETED");
+    assertEquals(2, downloadJob.get("succeededCount").asInt());
+    assertEquals(2, downloadJob.get("totalUri").asInt());
+  }
+
+  @Test
+  void testSubmitJob_InvalidRequest_BadRequest() throws Exception {
+    assertEquals(400, send("POST", "/jobs", "{\"uris\" : []}").statusCode());
+    assertEquals(400, send("POST", "/jobs", "not json").statusCode());
+
+    HttpResponse<String> response = send("POST", "/jobs", "{\"uris\" : [\"ftp://example/file.txt\"]}");
+    assertEquals(400, response.statusCode());
+    assertEquals("PRE_VALIDATION_FAILED", json(response).get("downloadStatus").asText());
+  }
+
+  @Test
+  void testPauseResumeCancelJob() throws Exception {
+    final String jobId = json(send("POST", "/jobs", "{\"uris\" : [\"https://example/hang.txt\"]}")).get("jobId").asText();
+
+    HttpResponse<String> pauseResponse = send("POST", "/jobs/" + jobId + "/pause", "");
+    assertEquals(200, pauseResponse.statusCode());
+    assertEquals("PAUSED", json(pauseResponse).get("status").asText());
+
+    HttpResponse<String> resumeResponse = send("POST", "/jobs/" + jobId + "/resume", "");
+    assertEquals(200, resumeResponse.statusCode());
+    assertEquals("RUNNING", json(resumeResponse).get("status").asText());
+
+    HttpResponse<String> cancelResponse = send("DELETE", "/jobs/" + jobId, "");
+    assertEquals(200, cancelResponse.statusCode());
+    assertEquals("CANCELLED", json(cancelResponse).get("status").asText());
+    assertEquals(1, awaitStatus(jobId, "CANCELLED").get("skippedCount").asInt());
+
+    // a cancelled job can not be paused nor resumed anymore
+    assertEquals(404, send("POST", "/jobs/" + jobId + "/resume", "").statusCode());
+  }
+
+  @Test
+  void testUnknownJob_NotFound() throws Exception {
+    assertEquals(404, send("GET", "/jobs/unknown", "").statusCode());
+    assertEquals(404, send("DELETE", "/jobs/unknown", "").statusCode());
+    assertEquals(404, send("POST", "/jobs/unknown/pause", "").statusCode());
+    assertEquals(404, send("POST", "/jobs/unknown/resume", "").statusCode());
+  }
+
+  @Test
+  void testUnsupportedMethod_MethodNotAllowed() throws Exception {
+    assertEquals(405, send("GET", "/jobs", "").statusCode());
+    assertEquals(405, send("PUT", "/jobs/unknown", "").statusCode());
+    assertEquals(405, send("POST", "/limits", "{\"corePoolSize\" : 4}").statusCode());
+    assertEquals(405, send("DELETE", "/protocols", "").statusCode());
+  }
+
+  @Test
+  void testLimits() throws Exception {
+    assertEquals(2, json(send("GET", "/limits", "")).get("corePoolSize").asInt());
+
+    assertEquals(400, send("PUT", "/limits", "{\"corePoolSize\" : 0}").statusCode());
+    assertEquals(400, send("PUT", "/limits", "{}").statusCode());
+    assertEquals(400, send("PUT", "/limits", "not json").statusCode());
+    assertEquals(2, scheduledExecutorService.getCorePoolSize());
+
+    HttpResponse<String> response = send("PUT", "/limits", "{\"corePoolSize\" : 4}");
+    assertEquals(200, response.statusCode());
+    assertEquals(4, json(response).get("corePoolSize").asInt());
+    assertEquals(4, scheduledExecutorService.getCorePoolSize());
+  }
+
+  @Test
+  void testProtocols() throws Exception {
+    HttpResponse<String> response = send("GET", "/protocols", "");
+    assertEquals(200, response.statusCode());
+    JsonNode protocols = json(response);
+    assertTrue(protocols.has(SupportedProtocolConstant.HTTPS_PROTOCOL));
+    assertFalse(protocols.has(SupportedProtocolConstant.FTP_PROTOCOL));
+  }
+
+  private HttpResponse<String> send(String method, String path, String body) throws Exception {
+    HttpRequest httpRequest = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + fileDownloaderDaemon.getPort() + path))
+        .method(method, body.isEmpty() ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+        .build();
+    return httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+  }
+
+  private JsonNode json(HttpResponse<String> response) throws Exception {
+    return objectMapper.readTree(response.body());
+  }
+
+  private JsonNode awaitStatus(String jobId, String status) throws Exception {
+    final long deadline = System.currentTimeMillis() + 10_000;
+    JsonNode downloadJob = json(send("GET", "/jobs/" + jobId, ""));
+    while (!status.equals(downloadJob.get("status").asText()) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(50);
+      downloadJob = json(send("GET", "/jobs/" + jobId, ""));
+    }
+    assertEquals(status, downloadJob.get("status").asText());
+    return downloadJob;
+  }
+}
@@ -0,0 +1,62 @@
+package com.company.file.downloader;
+
+import com.company.file.constant.SupportedProtocolConstant;
+import com.company.file.downloader.impl.FtpFileDownloader;
+import com.company.file.downloader.impl.HttpFileDownloader;
+import com.company.file.downloader.impl.S3FileDownloader;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FileDownloaderRegistryTest {
+
+  @Test
+  void testLoad_AllProtocolsDiscovered() {
+    Map<String, FileDownloader> fileDownloaderProtocolRegistry = FileDownloaderRegistry.load();
+
+    assertEquals(Set.of(
+        SupportedProtocolConstant.HTTP_PROTOCOL,
+        SupportedProtocolConstant.HTTPS_PROTOCOL,
+        SupportedProtocolConstant.FTP_PROTOCOL,
+        SupportedProtocolConstant.SFTP_PROTOCOL,
+        SupportedProtocolConstant.S3_PROTOCOL
+    ), fileDownloaderProtocolRegistry.keySet());
+    assertTrue(fileDownloaderProtocolRegistry.get(SupportedProtocolConstant.S3_PROTOCOL) instanceof S3FileDownloader);
+  }
+
+  @Test
+  void testLoad_BrokenDownloaderSkipped() {
+    // what ServiceLoader does when a provider constructor throws, e.g. S3_PART_SIZE_BYTES=8MB
+    Iterable<FileDownloader> fileDownloaders = () -> new Iterator<>() {
+      private final Iterator<FileDownloader> delegate = List.<FileDownloader>of(new HttpFileDownloader(), new FtpFileDownloader()).iterator();
+      private boolean failed;
+
+      @Override
+      public boolean hasNext() {
+        return delegate.hasNext();
+      }
+
+      @Override
+      public FileDownloader next() {
+        FileDownloader fileDownloader = delegate.next();
+        if (!failed) {
+          failed = true;
+          throw new ServiceConfigurationError("provider could not be instantiated",
+              new IllegalArgumentException("environment variable S3_PART_SIZE_BYTES must be a positive whole number, got : 8MB"));
+        }
+        return fileDownloader;
+      }
+    };
+
+    Map<String, FileDownloader> fileDownloaderProtocolRegistry = FileDownloaderRegistry.load(fileDownloaders);
+
+    assertEquals(Set.of(SupportedProtocolConstant.FTP_PROTOCOL), fileDownloaderProtocolRegistry.keySet());
+  }
+}
@@ -3,9 +3,18 @@ package com.company.file.service;
 
 import com.company.file.constant.SupportedProtocolConstant;
 import com.company.file.downloader.FileDownloader;
+import com.company.file.downloader.TransferContext;
 import com.company.file.downloader.impl.FtpFileDownloader;
 import com.company.file.downloader.impl.HttpFileDownloader;
 import com.company.file.downloader.impl.SftpFileDownloader;
+import com.company.file.enums.DownloadJobStatusEnum;
+import com.company.file.enums.DownloadOrderEnum;
+import com.company.file.enums.FileDownloaderCapabilityEnum;
+import com.company.file.model.DownloadBulkResult;
+import com.company.file.model.DownloadJob;
+import com.company.file.model.DownloadOption;
+import com.company.file.model.TransferDeadline;
+import com.company.file.util.FileDownloaderUtil;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
@@ -14,19 +23,35 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.attribute.FileStoreAttributeView;
+import java.security.MessageDigest;
 import java.time.Clock;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
@@ -108,6 +133,7 @@ public class FileDownloaderServiceTest {
 
   @AfterEach
   void tearDown() {
+    fileDownloaderService.close();
     File directory = new File(downloadLocation);
 
     if (directory.exists()) {
@@ -185,7 +211,510 @@ public class FileDownloaderServiceTest {
     assertNotNull(files);
     assertEquals(validUriSet.size(), files.length);
     Mockito.verify(fileDownloaderService, times(validUriSet.size() + (noFileFoundUriSet.size() * numberOfRetry)))
-        .downloadWithRetry(any(), any(), anyInt(), anyInt(), any());
+        .downloadWithRetry(any(), any(), anyInt(), anyInt(), any(), any());
+  }
+
+  @Test
+  void testDownloadBulk_AllUriInvalid_NoJobCreated() {
+    DownloadBulkResult downloadBulkResult = fileDownloaderService.downloadBulk(invalidUriSet, 1, downloadLocation);
+
+    assertNull(downloadBulkResult.getJobId());
+    assertFalse(fileDownloaderService.cancelDownloadJob("unknown"));
+  }
+
+  @Test
+  void testDownloadBulk_JobProgressTracked() throws Exception {
+    FileDownloader stubFileDownloader = stubFileDownloader((uri, outputPath, transferContext) -> {
+      if (uri.getPath().endsWith("RANDOM.png")) {
+        throw new IOException("not found");
+      }
+    });
+    ScheduledExecutorService stubExecutorService = Executors.newScheduledThreadPool(2);
+    FileDownloaderService stubFileDownloaderService = new FileDownloaderService(
+        Clock.systemUTC(),
+        Map.of(
+            SupportedProtocolConstant.HTTPS_PROTOCOL, stubFileDownloader,
+            SupportedProtocolConstant.HTTP_PROTOCOL, stubFileDownloader,
+            SupportedProtocolConstant.FTP_PROTOCOL, stubFileDownloader,
+            SupportedProtocolConstant.SFTP_PROTOCOL, stubFileDownloader
+        ),
+        stubExecutorService
+    );
+    Set<String> uriSet = new HashSet<>();
+    uriSet.addAll(validUriSet);
+    uriSet.addAll(noFileFoundUriSet);
+    DownloadBulkResult downloadBulkResult = stubFileDownloaderService.downloadBulk(uriSet, 1, downloadLocation);
+    stubExecutorService.shutdown();
+    stubFileDownloaderService.close();
+    stubExecutorService.awaitTermination(10, TimeUnit.SECONDS);
+
+    DownloadJob downloadJob = stubFileDownloaderService.getDownloadJob(downloadBulkResult.getJobId());
+    assertNotNull(downloadJob);
+    assertEquals(DownloadJobStatusEnum.COMPLETED, downloadJob.getStatus());
+    assertEquals(uriSet.size(), downloadJob.getTotalUri());
+    assertEquals(validUriSet.size(), downloadJob.getSucceededCount());
+    assertEquals(noFileFoundUriSet.size(), downloadJob.getFailedCount());
+  }
+
+  @Test
+  void testDownloadBulk_StalledTransferAborted() throws Exception {
+    ScheduledExecutorService stubExecutorService = Executors.newScheduledThreadPool(1);
+    FileDownloaderService stubFileDownloaderService = newHangingFileDownloaderService(stubExecutorService);
+    DownloadBulkResult downloadBulkResult = stubFileDownloaderService.downloadBulk(
+        Set.of("https://example/hanging.txt"),
+        new DownloadOption(2, downloadLocation, TransferDeadline.ofSeconds(0, 1), DownloadOrderEnum.NONE, Map.of(), List.of()));
+
+    DownloadJob downloadJob = stubFileDownloaderService.getDownloadJob(downloadBulkResult.getJobId());
+    awaitFinished(downloadJob);
+    assertEquals(DownloadJobStatusEnum.COMPLETED, downloadJob.getStatus());
+    assertEquals(1, downloadJob.getFailedCount());
+    stubExecutorService.shutdownNow();
+    stubFileDownloaderService.close();
+  }
+
+  @Test
+  void testCancelDownloadJob_AfterStall_NotRetried() throws Exception {
+    AtomicInteger attemptCount = new AtomicInteger();
+    AtomicReference<String> jobId = new AtomicReference<>();
+    AtomicReference<FileDownloaderService> fileDownloaderService = new AtomicReference<>();
+    FileDownloader stallingFileDownloader = stubFileDownloader((uri, outputPath, transferContext) -> {
+      if (attemptCount.incrementAndGet() > 1) {
+        return;
+      }
+      CountDownLatch stalled = new CountDownLatch(1);
+      transferContext.onAbort(stalled::countDown);
+      stalled.await();
+      // cancel arrives after the stall, while the failed attempt is unwinding
+      fileDownloaderService.get().cancelDownloadJob(jobId.get());
+      transferContext.checkNotAborted();
+    });
+    ScheduledExecutorService stubExecutorService = Executors.newScheduledThreadPool(1);
+    FileDownloaderService stubFileDownloaderService = new FileDownloaderService(
+        Clock.systemUTC(),
+        Map.of(SupportedProtocolConstant.HTTPS_PROTOCOL, stallingFileDownloader),
+        stubExecutorService
+    );
+    fileDownloaderService.set(stubFileDownloaderService);
+    DownloadBulkResult downloadBulkResult = stubFileDownloaderService.downloadBulk(
+        Set.of("https://example/stalling.txt"),
+        new DownloadOption(3, downloadLocation, TransferDeadline.ofSeconds(0, 1), DownloadOrderEnum.NONE, Map.of(), List.of()));
+    jobId.set(downloadBulkResult.getJobId());
+
+    DownloadJob downloadJob = stubFileDownloaderService.getDownloadJob(downloadBulkResult.getJobId());
+    awaitFinished(downloadJob);
+    assertEquals(DownloadJobStatusEnum.CANCELLED, downloadJob.getStatus());
+    assertEquals(1, downloadJob.getSkippedCount());
+    assertEquals(0, downloadJob.getSucceededCount());
+    assertEquals(1, attemptCount.get());
+    stubExecutorService.shutdownNow();
+    stubFileDownloaderService.close();
+  }
+
+  @Test
+  void testCancelDownloadJob_InFlightTransferAborted() throws Exception {
+    ScheduledExecutorService stubExecutorService = Executors.newScheduledThreadPool(1);
+    FileDownloaderService stubFileDownloaderService = newHangingFileDownloaderService(stubExecutorService);
+    DownloadBulkResult downloadBulkResult = stubFileDownloaderService.downloadBulk(
+        Set.of("https://example/hanging-1.txt", "https://example/hanging-2.txt"), 1, downloadLocation);
+    DownloadJob downloadJob = stubFileDownloaderService.getDownloadJob(downloadBulkResult.getJobId());
+
+    Thread.sleep(200);
+    assertTrue(stubFileDownloaderService.cancelDownloadJob(downloadJob.getJobId()));
+    awaitFinished(downloadJob);
+    assertEquals(DownloadJobStatusEnum.CANCELLED, downloadJob.getStatus());
+    assertEquals(2, downloadJob.getSkippedCount());
+    stubExecutorService.shutdownNow();
+    stubFileDownloaderService.close();
+  }
+
+  @Test
+  void testPauseDownloadJob_InFlightTransferParked_WorkerReleased() throws Exception {
+    Map<String, AtomicInteger> attemptCountMap = new ConcurrentHashMap<>();
+    CountDownLatch started = new CountDownLatch(1);
+    ScheduledExecutorService stubExecutorService = Executors.newScheduledThreadPool(1);
+    FileDownloaderService stubFileDownloaderService = newPausableFileDownloaderService(stubExecutorService, attemptCountMap, started);
+    DownloadJob pausedDownloadJob = stubFileDownloaderService.getDownloadJob(
+        stubFileDownloaderService.downloadBulk(Set.of("https://example/hanging.txt"), 1, downloadLocation).getJobId());
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    assertTrue(stubFileDownloaderService.pauseDownloadJob(pausedDownloadJob.getJobId()));
+    awaitParked(pausedDownloadJob, 1);
+    assertEquals(DownloadJobStatusEnum.PAUSED, pausedDownloadJob.getStatus());
+
+    // the only worker is free again : another job can run while the first one is paused
+    DownloadJob otherDownloadJob = stubFileDownloaderService.getDownloadJob(
+        stubFileDownloaderService.downloadBulk(Set.of("https://example/other.txt"), 1, downloadLocation).getJobId());
+    assertTrue(otherDownloadJob.awaitFinished(5, TimeUnit.SECONDS));
+    assertEquals(1, otherDownloadJob.getSucceededCount());
+    assertEquals(1, pausedDownloadJob.getParkedCount());
+    assertFalse(pausedDownloadJob.isFinished());
+    stubExecutorService.shutdownNow();
+    stubFileDownloaderService.close();
+  }
+
+  @Test
+  void testResumeDownloadJob_ParkedUriSubmittedAgain_JobCompleted() throws Exception {
+    Map<String, AtomicInteger> attemptCountMap = new ConcurrentHashMap<>();
+    CountDownLatch started = new CountDownLatch(1);
+    ScheduledExecutorService stubExecutorService = Executors.newScheduledThreadPool(1);
+    FileDownloaderService stubFileDownloaderService = newPausableFileDownloaderService(stubExecutorService, attemptCountMap, started);
+    DownloadJob downloadJob = stubFileDownloaderService.getDownloadJob(stubFileDownloaderService.downloadBulk(
+        Set.of("https://example/hanging.txt", "https://example/other.txt"), 1, downloadLocation).getJobId());
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    assertTrue(stubFileDownloaderService.pauseDownloadJob(downloadJob.getJobId()));
+    // the single worker is busy with /hanging.txt, /other.txt has either already succeeded or is parked with it
+    awaitParked(downloadJob, 2 - downloadJob.getSucceededCount());
+
+    assertTrue(stubFileDownloaderService.resumeDownloadJob(downloadJob.getJobId()));
+    assertTrue(downloadJob.awaitFinished(5, TimeUnit.SECONDS));
+    assertEquals(DownloadJobStatusEnum.COMPLETED, downloadJob.getStatus());
+    assertEquals(2, downloadJob.getSucceededCount());
+    assertEquals(0, downloadJob.getParkedCount());
+    // the aborted transfer is started again from scratch, the parked one only once
+    assertEquals(2, attemptCountMap.get("/hanging.txt").get());
+    assertEquals(1, attemptCountMap.get("/other.txt").get());
+    stubExecutorService.shutdownNow();
+    stubFileDownloaderService.close();
+  }
+
+  @Test
+  void testDownloadBulk_TotalDeadlineExceeded_FailedWithoutRetry() throws Exception {
+    AtomicInteger attemptCount = new AtomicInteger();
+    FileDownloader hangingFileDownloader = stubFileDownloader((uri, outputPath, transferContext) -> {
+      attemptCount.incrementAndGet();
+      awaitAborted(transferContext);
+    });
+    ScheduledExecutorService stubExecutorService = Executors.newScheduledThreadPool(1);
+    FileDownloaderService stubFileDownloaderService = new FileDownloaderService(
+        Clock.systemUTC(),
+        Map.of(SupportedProtocolConstant.HTTPS_PROTOCOL, hangingFileDownloader),
+        stubExecutorService
+    );
+    DownloadBulkResult downloadBulkResult = stubFileDownloaderService.downloadBulk(
+        Set.of("https://example/hanging.txt"),
+        new DownloadOption(3, downloadLocation, new TransferDeadline(300, 0), DownloadOrderEnum.NONE, Map.of(), List.of()));
+
+    DownloadJob downloadJob = stubFileDownloaderService.getDownloadJob(downloadBulkResult.getJobId());
+    assertTrue(downloadJob.awaitFinished(5, TimeUnit.SECONDS));
+    assertEquals(1, downloadJob.getFailedCount());
+    assertEquals(1, attemptCount.get());
+    stubExecutorService.shutdownNow();
+    stubFileDownloaderService.close();
+  }
+
+  @Test
+  void testDownloadBulk_LargestFirstOrder() throws Exception {
+    Map<String, Long> remoteSizeMap = Map.of("/small.txt", 10L, "/medium.txt", 1_000L);
+    List<String> startedPathList = new CopyOnWriteArrayList<>();
+    FileDownloader recordingFileDownloader = new FileDownloader() {
+      @Override
+      public Set<String> getSupportedSchemes() {
+        return Set.of(SupportedProtocolConstant.HTTPS_PROTOCOL);
+      }
+
+      @Override
+      public Set<FileDownloaderCapabilityEnum> getCapabilities() {
+        return Set.of(FileDownloaderCapabilityEnum.SIZE_PROBE);
+      }
+
+      @Override
+      public void download(URI uri, String outputPath, TransferContext transferContext) {
+        startedPathList.add(uri.getPath());
+      }
+
+      @Override
+      public long probeSize(URI uri) {
+        return remoteSizeMap.getOrDefault(uri.getPath(), UNKNOWN_SIZE);
+      }
+    };
+    ScheduledExecutorService stubExecutorService = Executors.newScheduledThreadPool(1);
+    FileDownloaderService stubFileDownloaderService = new FileDownloaderService(
+        Clock.systemUTC(),
+        Map.of(SupportedProtocolConstant.HTTPS_PROTOCOL, recordingFileDownloader),
+        stubExecutorService
+    );
+    DownloadOption downloadOption = new DownloadOption(1, downloadLocation, TransferDeadline.NONE, DownloadOrderEnum.LARGEST_FIRST,
+        Map.of("https://example/large.txt", 1_000_000L), List.of());
+    DownloadBulkResult downloadBulkResult = stubFileDownloaderService.downloadBulk(
+        Set.of("https://example/small.txt", "https://example/large.txt", "https://example/medium.txt", "https://example/unknown.txt"),
+        downloadOption);
+    assertTrue(stubFileDownloaderService.getDownloadJob(downloadBulkResult.getJobId()).awaitFinished(10, TimeUnit.SECONDS));
+    stubExecutorService.shutdown();
+    stubFileDownloaderService.close();
+
+    assertEquals(List.of("/unknown.txt", "/large.txt", "/medium.txt", "/small.txt"), startedPathList);
+  }
+
+  @Test
+  void testDownloadBulk_FileLargerThanDisk_Failed() throws Exception {
+    List<String> startedPathList = new CopyOnWriteArrayList<>();
+    ScheduledExecutorService stubExecutorService = Executors.newScheduledThreadPool(1);
+    FileDownloaderService stubFileDownloaderService = new FileDownloaderService(
+        Clock.systemUTC(),
+        Map.of(SupportedProtocolConstant.HTTPS_PROTOCOL, stubFileDownloader((uri, outputPath, transferContext) -> startedPathList.add(uri.getPath()))),
+        stubExecutorService,
+        new DiskSpaceAllocator(1)
+    );
+    DownloadBulkResult downloadBulkResult = stubFileDownloaderService.downloadBulk(
+        Set.of("https://example/huge.bin"),
+        new DownloadOption(1, downloadLocation, TransferDeadline.NONE, DownloadOrderEnum.NONE, Map.of("https://example/huge.bin", Long.MAX_VALUE / 2),
+            List.of()));
+
+    DownloadJob downloadJob = stubFileDownloaderService.getDownloadJob(downloadBulkResult.getJobId());
+    awaitFinished(downloadJob);
+    stubExecutorService.shutdown();
+    stubFileDownloaderService.close();
+    assertEquals(1, downloadJob.getFailedCount());
+    assertTrue(startedPathList.isEmpty());
+  }
+
+  @Test
+  void testDownloadBulk_NotEnoughDiskSpace_AwaitsWithoutStarting() throws Exception {
+    // 8 MiB available : the first uri reserves 4 MiB and keeps it, the next uri (8 MiB each) fit the disk but can not start now
+    final long minFreeSpaceBytes = 1024 * 1024;
+    FileStore fileStore = new FixedSpaceFileStore(64 * 1024 * 1024, minFreeSpaceBytes + 8 * 1024 * 1024);
+    List<String> startedPathList = new CopyOnWriteArrayList<>();
+    CountDownLatch hangingStarted = new CountDownLatch(1);
+    ScheduledExecutorService stubExecutorService = Executors.newScheduledThreadPool(2);
+    FileDownloaderService stubFileDownloaderService = new FileDownloaderService(
+        Clock.systemUTC(),
+        Map.of(SupportedProtocolConstant.HTTPS_PROTOCOL, stubFileDownloader((uri, outputPath, transferContext) -> {
+          startedPathList.add(uri.getPath());
+          if (uri.getPath().equals("/hanging.txt")) {
+            CountDownLatch aborted = new CountDownLatch(1);
+            transferContext.onAbort(aborted::countDown);
+            hangingStarted.countDown();
+            aborted.await();
+            transferContext.checkNotAborted();
+          }
+        })),
+        stubExecutorService,
+        new DiskSpaceAllocator(minFreeSpaceBytes, downloadLocation -> fileStore)
+    );
+    DownloadBulkResult hangingDownloadBulkResult = stubFileDownloaderService.downloadBulk(Set.of("https://example/hanging.txt"),
+        new DownloadOption(1, downloadLocation, TransferDeadline.NONE, DownloadOrderEnum.NONE,
+            Map.of("https://example/hanging.txt", 4L * 1024 * 1024), List.of()));
+    assertTrue(hangingStarted.await(10, TimeUnit.SECONDS));
+    DownloadBulkResult downloadBulkResult = stubFileDownloaderService.downloadBulk(
+        Set.of("https://example/file-1.txt", "https://example/file-2.txt"),
+        new DownloadOption(1, downloadLocation, TransferDeadline.NONE, DownloadOrderEnum.NONE,
+            Map.of("https://example/file-1.txt", 8L * 1024 * 1024, "https://example/file-2.txt", 8L * 1024 * 1024), List.of()));
+    DownloadJob downloadJob = stubFileDownloaderService.getDownloadJob(downloadBulkResult.getJobId());
+
+    Thread.sleep(300);
+    assertEquals(2, downloadJob.getAwaitingDiskSpaceCount());
+    assertFalse(downloadJob.isFinished());
+
+    assertTrue(stubFileDownloaderService.cancelDownloadJob(downloadJob.getJobId()));
+    assertTrue(stubFileDownloaderService.cancelDownloadJob(hangingDownloadBulkResult.getJobId()));
+    awaitFinished(downloadJob);
+    awaitFinished(stubFileDownloaderService.getDownloadJob(hangingDownloadBulkResult.getJobId()));
+    stubExecutorService.shutdown();
+    stubFileDownloaderService.close();
+    assertEquals(2, downloadJob.getSkippedCount());
+    assertEquals(0, downloadJob.getAwaitingDiskSpaceCount());
+    assertEquals(List.of("/hanging.txt"), startedPathList);
+  }
+
+  @Test
+  void testDownloadBulk_NotEnoughDiskSpaceAndNothingRunning_Failed() throws Exception {
+    // the disk is full : every uri fits the disk but none can start, and no running transfer will free space
+    FileStore fileStore = new FixedSpaceFileStore(64 * 1024 * 1024, 0);
+    List<String> startedPathList = new CopyOnWriteArrayList<>();
+    ScheduledExecutorService stubExecutorService = Executors.newScheduledThreadPool(1);
+    FileDownloaderService stubFileDownloaderService = new FileDownloaderService(
+        Clock.systemUTC(),
+        Map.of(SupportedProtocolConstant.HTTPS_PROTOCOL, stubFileDownloader((uri, outputPath, transferContext) -> startedPathList.add(uri.getPath()))),
+        stubExecutorService,
+        new DiskSpaceAllocator(1024 * 1024, downloadLocation -> fileStore)
+    );
+    DownloadBulkResult downloadBulkResult = stubFileDownloaderService.downloadBulk(
+        Set.of("https://example/file-1.txt", "https://example/file-2.txt"), 1, downloadLocation);
+    DownloadJob downloadJob = stubFileDownloaderService.getDownloadJob(downloadBulkResult.getJobId());
+
+    awaitFinished(downloadJob);
+    stubExecutorService.shutdown();
+    stubFileDownloaderService.close();
+    assertTrue(downloadJob.isFinished());
+    assertEquals(2, downloadJob.getFailedCount());
+    assertEquals(0, downloadJob.getAwaitingDiskSpaceCount());
+    assertTrue(startedPathList.isEmpty());
+  }
+
+  @Test
+  void testDownloadBulk_AdditionalDownloadLocations_Spread() throws Exception {
+    final String additionalDownloadLocation = downloadLocation + "/disk-2";
+    ScheduledExecutorService stubExecutorService = Executors.newScheduledThreadPool(2);
+    FileDownloaderService stubFileDownloaderService = new FileDownloaderService(
+        Clock.systemUTC(),
+        Map.of(SupportedProtocolConstant.HTTPS_PROTOCOL, stubFileDownloader((uri, outputPath, transferContext) ->
+            Files.write(Path.of(outputPath), new byte[]{1}))),
+        stubExecutorService
+    );
+    DownloadBulkResult downloadBulkResult = stubFileDownloaderService.downloadBulk(
+        Set.of("https://example/file-1.txt", "https://example/file-2.txt", "https://example/file-3.txt", "https://example/file-4.txt"),
+        new DownloadOption(1, downloadLocation, TransferDeadline.NONE, DownloadOrderEnum.NONE, Map.of(), List.of(additionalDownloadLocation)));
+
+    awaitFinished(stubFileDownloaderService.getDownloadJob(downloadBulkResult.getJobId()));
+    stubExecutorService.shutdown();
+    stubFileDownloaderService.close();
+    assertEquals(2, new File(downloadLocation).listFiles(File::isFile).length);
+    assertEquals(2, new File(additionalDownloadLocation).listFiles(File::isFile).length);
+  }
+
+  /**
+   * service whose downloader never receives any byte until the transfer is aborted.
+   */
+  private static FileDownloaderService newHangingFileDownloaderService(ScheduledExecutorService executorService) {
+    FileDownloader hangingFileDownloader = stubFileDownloader((uri, outputPath, transferContext) -> {
+      CountDownLatch closed = new CountDownLatch(1);
+      InputStream hangingInputStream = new InputStream() {
+        @Override
+        public int read() throws IOException {
+          try {
+            closed.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          throw new IOException("stream closed");
+        }
+
+        @Override
+        public void close() {
+          closed.countDown();
+        }
+      };
+      FileDownloaderUtil.saveFile(hangingInputStream, outputPath, transferContext);
+    });
+    return new FileDownloaderService(
+        Clock.systemUTC(),
+        Map.of(SupportedProtocolConstant.HTTPS_PROTOCOL, hangingFileDownloader),
+        executorService
+    );
+  }
+
+  /**
+   * service whose downloader hangs on the first attempt of /hanging.txt until the transfer is aborted, any other attempt succeeds.
+   *
+   * @param attemptCountMap attempt count per uri path
+   * @param started         counted down when the first attempt of /hanging.txt has started
+   */
+  private static FileDownloaderService newPausableFileDownloaderService(ScheduledExecutorService executorService,
+                                                                        Map<String, AtomicInteger> attemptCountMap,
+                                                                        CountDownLatch started) {
+    FileDownloader pausableFileDownloader = stubFileDownloader((uri, outputPath, transferContext) -> {
+      final int attempt = attemptCountMap.computeIfAbsent(uri.getPath(), key -> new AtomicInteger()).incrementAndGet();
+      if (uri.getPath().equals("/hanging.txt") && attempt == 1) {
+        started.countDown();
+        awaitAborted(transferContext);
+      }
+    });
+    return new FileDownloaderService(
+        Clock.systemUTC(),
+        Map.of(SupportedProtocolConstant.HTTPS_PROTOCOL, pausableFileDownloader),
+        executorService
+    );
+  }
+
+  private static void awaitAborted(TransferContext transferContext) throws Exception {
+    CountDownLatch aborted = new CountDownLatch(1);
+    transferContext.onAbort(aborted::countDown);
+    aborted.await();
+    transferContext.checkNotAborted();
+  }
+
+  private static void awaitParked(DownloadJob downloadJob, int parkedCount) throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + 5000;
+    while (downloadJob.getParkedCount() < parkedCount && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20);
+    }
+    assertEquals(parkedCount, downloadJob.getParkedCount());
+  }
+
+  /**
+   * file store with a fixed total / usable space, so the disk space admission does not depend on the disk running the test.
+   */
+  private static class FixedSpaceFileStore extends FileStore {
+    private final long totalSpace;
+    private final long usableSpace;
+
+    private FixedSpaceFileStore(long totalSpace, long usableSpace) {
+      this.totalSpace = totalSpace;
+      this.usableSpace = usableSpace;
+    }
+
+    @Override
+    public String name() {
+      return "fixed";
+    }
+
+    @Override
+    public String type() {
+      return "fixed";
+    }
+
+    @Override
+    public boolean isReadOnly() {
+      return false;
+    }
+
+    @Override
+    public long getTotalSpace() {
+      return totalSpace;
+    }
+
+    @Override
+    public long getUsableSpace() {
+      return usableSpace;
+    }
+
+    @Override
+    public long getUnallocatedSpace() {
+      return usableSpace;
+    }
+
+    @Override
+    public boolean supportsFileAttributeView(Class<? extends FileAttributeView> type) {
+      return false;
+    }
+
+    @Override
+    public boolean supportsFileAttributeView(String name) {
+      return false;
+    }
+
+    @Override
+    public <V extends FileStoreAttributeView> V getFileStoreAttributeView(Class<V> type) {
+      return null;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) {
+      throw new UnsupportedOperationException(attribute);
+    }
+  }
+
+  private interface DownloadAction {
+    void download(URI uri, String outputPath, TransferContext transferContext) throws Exception;
+  }
+
+  private static FileDownloader stubFileDownloader(DownloadAction downloadAction) {
+    return new FileDownloader() {
+      @Override
+      public Set<String> getSupportedSchemes() {
+        return Set.of(SupportedProtocolConstant.HTTPS_PROTOCOL, SupportedProtocolConstant.HTTP_PROTOCOL,
+            SupportedProtocolConstant.FTP_PROTOCOL, SupportedProtocolConstant.SFTP_PROTOCOL);
+      }
+
+      @Override
+      public void download(URI uri, String outputPath, TransferContext transferContext) throws Exception {
+        downloadAction.download(uri, outputPath, transferContext);
+      }
+    };
+  }
+
+  private static void awaitFinished(DownloadJob downloadJob) throws InterruptedException {
+    downloadJob.awaitFinished(10, TimeUnit.SECONDS);
   }
 
   @Test
@@ -193,9 +722,10 @@ public class FileDownloaderServiceTest {
     int numberOfRetry = 2;
     String uriString = "https://example/example.txt";
     URI uri = new URI(uriString);
-    fileDownloaderService.downloadWithRetry(uri, downloadLocation + uri.getPath(), numberOfRetry, 1, "id");
+    fileDownloaderService.downloadWithRetry(uri, downloadLocation + uri.getPath(), numberOfRetry, 1, "id",
+        new TransferContext(TransferDeadline.NONE, Clock.systemUTC()));
 
-    Mockito.verify(fileDownloaderService, times(2)).downloadWithRetry(any(), any(), anyInt(), anyInt(), any());
+    Mockito.verify(fileDownloaderService, times(2)).downloadWithRetry(any(), any(), anyInt(), anyInt(), any(), any());
   }
 
   @Test
@@ -217,4 +747,17 @@ public class FileDownloaderServiceTest {
         fileDownloaderService.generateOutputPath(downloadLocation, uri2)
     );
   }
+
+  @Test
+  void testGenerateOutputPath_PrefixIsSha256OfSchemeHostAndDirectory() throws Exception {
+    URI uri = new URI("https://github.com/foster0400/rekognition-for-attendance-demo/blob/master/doc/attendance.png");
+    byte[] digest = MessageDigest.getInstance("SHA-256")
+        .digest("httpsgithub.com/foster0400/rekognition-for-attendance-demo/blob/master/doc".getBytes(StandardCharsets.UTF_8));
+    StringBuilder expectedPrefix = new StringBuilder();
+    for (byte b : digest) {
+      expectedPrefix.append(String.format("%02x", b));
+    }
+
+    assertEquals(downloadLocation + "/" + expectedPrefix + "-attendance.png", fileDownloaderService.generateOutputPath(downloadLocation, uri));
+  }
 }
@@ -0,0 +1,42 @@
+package com.company.file.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DigestUtilTest {
+  private static final String ABC_SHA256_HEX = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+  @Test
+  void testSha256_KnownValue() {
+    assertEquals(ABC_SHA256_HEX, DigestUtil.toHexString(DigestUtil.sha256("abc")));
+    // a digest left half updated by a previous caller of the thread does not leak into the next one
+    DigestUtil.sha256Digest().update((byte) 1);
+    assertEquals(ABC_SHA256_HEX, DigestUtil.toHexString(DigestUtil.sha256("abc")));
+  }
+
+  @Test
+  void testSha256_ConcurrentThreads_SameValue() throws Exception {
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    List<Future<String>> futureList = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      futureList.add(executorService.submit(() -> DigestUtil.toHexString(DigestUtil.sha256("abc"))));
+    }
+    for (Future<String> future : futureList) {
+      assertEquals(ABC_SHA256_HEX, future.get());
+    }
+    executorService.shutdown();
+  }
+
+  @Test
+  void testToHex() {
+    assertEquals("00ff7f80", DigestUtil.toHexString(new byte[]{0, (byte) 0xff, 0x7f, (byte) 0x80}));
+    assertEquals('a', DigestUtil.hexDigit(0x1a));
+  }
+}
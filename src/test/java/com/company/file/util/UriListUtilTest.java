@@ -0,0 +1,55 @@
+package com.company.file.util;
+
+import com.company.file.model.UriList;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class UriListUtilTest {
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private Path uriListPath;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    uriListPath = Files.createTempFile("uri-list", ".json");
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    Files.deleteIfExists(uriListPath);
+  }
+
+  @Test
+  void testRead_UriAndSizedEntries() throws Exception {
+    UriList uriList = read("[\"https://example/file-1.txt\", {\"uri\" : \"https://example/file-2.txt\", \"size\" : 1048576}, "
+        + "{\"uri\" : \"https://example/file-3.txt\"}]");
+
+    assertEquals(Set.of("https://example/file-1.txt", "https://example/file-2.txt", "https://example/file-3.txt"), uriList.getUriSet());
+    assertEquals(Map.of("https://example/file-2.txt", 1_048_576L), uriList.getSizeHintMap());
+  }
+
+  @Test
+  void testRead_InvalidEntry_Rejected() {
+    assertThrows(IOException.class, () -> read("{\"uri\" : \"https://example/file-1.txt\"}"));
+    assertThrows(IOException.class, () -> read("[1]"));
+    assertThrows(IOException.class, () -> read("[{\"size\" : 1}]"));
+    assertThrows(IOException.class, () -> read("[{\"uri\" : \"https://example/file-1.txt\", \"size\" : \"8MB\"}]"));
+    assertThrows(IOException.class, () -> read("[{\"uri\" : \"https://example/file-1.txt\", \"size\" : -1}]"));
+  }
+
+  private UriList read(String content) throws IOException {
+    Files.writeString(uriListPath, content);
+    return UriListUtil.read(objectMapper, new File(uriListPath.toString()));
+  }
+}